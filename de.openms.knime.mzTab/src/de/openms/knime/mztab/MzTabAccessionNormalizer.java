@@ -0,0 +1,409 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+
+/**
+ * Replaces the protein accessions of the PRT, PEP and PSM tables by integer
+ * ids of a deduplicated accession dictionary. The normalized tables start with
+ * an integer row id column, which holds the number of the row key. Columns
+ * holding a single accession are replaced by an id column named
+ * &lt;column&gt;_id, columns holding lists of accessions (PSM accession, PRT
+ * ambiguity_members) are removed and each list element becomes a row of a
+ * link table. A link row holds the output port of the section, the row id
+ * and the accession id, so the link table has integer columns only.
+ * 
+ * The rows are normalized by {@link MzTabSection#addRow(DataCell[])} while the
+ * section tables are built. The normalizer collects the dictionary of a single
+ * execution, the links are collected per file by {@link Links}. Accession ids
+ * are assigned in the order the accessions are first seen; if several files
+ * are read in parallel this order depends on the progress of the files.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabAccessionNormalizer {
+
+    /**
+     * The sections whose accessions are normalized.
+     */
+    static final String[] SECTIONS = { "PRT", "PEP", "PSM" };
+
+    /**
+     * The name of the row id column of the normalized tables.
+     */
+    static final String ROW_ID_COLUMN = "row_id";
+
+    /**
+     * The columns holding protein accessions.
+     */
+    private static final String[] ACCESSION_COLUMNS = { "accession",
+            "ambiguity_members" };
+
+    private static final String ID_SUFFIX = "_id";
+
+    /**
+     * The ids of the accessions in the order they were first seen. Guarded
+     * by the normalizer, as files may be read concurrently.
+     */
+    private final Map<String, Integer> m_ids = new LinkedHashMap<String, Integer>();
+
+    /**
+     * The links of each file in the order of the files.
+     */
+    private final List<Links> m_links = new ArrayList<Links>();
+
+    /**
+     * @return The spec of the accession dictionary table.
+     */
+    static DataTableSpec createDictionarySpec() {
+        return new DataTableSpec(new DataColumnSpec[] {
+                new DataColumnSpecCreator("accession_id", IntCell.TYPE)
+                        .createSpec(),
+                new DataColumnSpecCreator("accession", StringCell.TYPE)
+                        .createSpec() });
+    }
+
+    /**
+     * @return The spec of the link table.
+     */
+    static DataTableSpec createLinkSpec() {
+        return new DataTableSpec(new DataColumnSpec[] {
+                new DataColumnSpecCreator("section", IntCell.TYPE)
+                        .createSpec(),
+                new DataColumnSpecCreator(ROW_ID_COLUMN, IntCell.TYPE)
+                        .createSpec(),
+                new DataColumnSpecCreator("accession_id", IntCell.TYPE)
+                        .createSpec() });
+    }
+
+    /**
+     * @param section
+     *            The line prefix of the section.
+     * @return true if the accessions of the section are normalized.
+     */
+    static boolean isNormalized(final String section) {
+        for (String s : SECTIONS) {
+            if (s.equals(section)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The output port of the given section, which identifies the
+     *         section in the link table.
+     */
+    private static int getPort(final String section) {
+        return Arrays.asList(MzTabReaderNodeModel.SECTIONS).indexOf(section);
+    }
+
+    private static boolean isAccessionColumn(final DataColumnSpec colSpec) {
+        for (String name : ACCESSION_COLUMNS) {
+            if (name.equals(colSpec.getName().trim())) {
+                return colSpec.getType() == StringCell.TYPE
+                        || isList(colSpec.getType());
+            }
+        }
+        return false;
+    }
+
+    private static boolean isList(final DataType type) {
+        return type == ListCell.getCollectionType(StringCell.TYPE);
+    }
+
+    /**
+     * Creates the spec of a normalized section table.
+     * 
+     * @param spec
+     *            The spec of the section as read from the file.
+     * @return The spec with a leading row id column, id columns instead of
+     *         single accessions and without accession lists. Specs without
+     *         columns, i.e., of sections missing in the file, are returned
+     *         unchanged.
+     */
+    static DataTableSpec createNormalizedSpec(final DataTableSpec spec) {
+        if (spec.getNumColumns() == 0) {
+            return spec;
+        }
+        List<DataColumnSpec> colSpecs = new ArrayList<DataColumnSpec>();
+        colSpecs.add(new DataColumnSpecCreator(ROW_ID_COLUMN, IntCell.TYPE)
+                .createSpec());
+        for (int c = 0; c < spec.getNumColumns(); ++c) {
+            DataColumnSpec colSpec = spec.getColumnSpec(c);
+            if (!isAccessionColumn(colSpec)) {
+                colSpecs.add(colSpec);
+            } else if (!isList(colSpec.getType())) {
+                colSpecs.add(new DataColumnSpecCreator(colSpec.getName()
+                        .trim() + ID_SUFFIX, IntCell.TYPE).createSpec());
+            }
+        }
+        return new DataTableSpec(colSpecs.toArray(new DataColumnSpec[colSpecs
+                .size()]));
+    }
+
+    /**
+     * Creates the collector of the links of the next file. Has to be called
+     * for the files in the order of the concatenated tables.
+     * 
+     * @return The links of the file.
+     */
+    synchronized Links addFile() {
+        Links links = new Links();
+        m_links.add(links);
+        return links;
+    }
+
+    private synchronized int getId(final String accession) {
+        Integer id = m_ids.get(accession);
+        if (id == null) {
+            id = m_ids.size() + 1;
+            m_ids.put(accession, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param exec
+     *            The execution context creating the table.
+     * @return The accession dictionary.
+     */
+    synchronized BufferedDataTable createDictionaryTable(
+            final ExecutionContext exec) {
+        BufferedDataContainer container = exec
+                .createDataContainer(createDictionarySpec());
+        for (Map.Entry<String, Integer> entry : m_ids.entrySet()) {
+            container.addRowToTable(new DefaultRow(new RowKey("Row "
+                    + entry.getValue()), new IntCell(entry.getValue()),
+                    new StringCell(entry.getKey())));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * Writes the links of all files, adding the row id offset of each file,
+     * see {@link Links#setRowIdOffset(String, int)}.
+     * 
+     * @param exec
+     *            The execution context creating the table.
+     * @return The links between the section rows and the accession ids.
+     * @throws CanceledExecutionException
+     *             If the execution was canceled.
+     */
+    synchronized BufferedDataTable createLinkTable(
+            final ExecutionContext exec) throws CanceledExecutionException {
+        BufferedDataContainer container = exec
+                .createDataContainer(createLinkSpec());
+        long rowIdx = 1;
+        for (Links links : m_links) {
+            for (int i = 0; i < links.m_size; ++i) {
+                int port = links.m_ports[i];
+                Integer offset = links.m_rowIdOffsets.get(port);
+                int rowId = links.m_rowIds[i]
+                        + (offset == null ? 0 : offset.intValue());
+                container.addRowToTable(new DefaultRow(new RowKey("Row "
+                        + rowIdx++), new IntCell(port), new IntCell(rowId),
+                        new IntCell(links.m_accessionIds[i])));
+                exec.checkCanceled();
+            }
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * The links of the rows of a single file, held as integers until the link
+     * table is written. A file is read by a single thread.
+     */
+    final class Links {
+
+        private int[] m_ports = new int[1024];
+
+        private int[] m_rowIds = new int[1024];
+
+        private int[] m_accessionIds = new int[1024];
+
+        private int m_size;
+
+        /**
+         * The offset added to the row ids of each port, if the rows were
+         * renumbered while concatenating the files.
+         */
+        private final Map<Integer, Integer> m_rowIdOffsets = new HashMap<Integer, Integer>();
+
+        private Links() {
+        }
+
+        /**
+         * Sets the offset added to the row ids of a section in the link
+         * table, i.e., the difference between the row id of a row in the
+         * concatenated table and its row id in the file table.
+         * 
+         * @param section
+         *            The line prefix of the section.
+         * @param offset
+         *            The offset of the row ids.
+         */
+        void setRowIdOffset(final String section, final int offset) {
+            m_rowIdOffsets.put(getPort(section), offset);
+        }
+
+        /**
+         * Creates the normalizer of the rows of a section.
+         * 
+         * @param section
+         *            The line prefix of the section.
+         * @param spec
+         *            The spec of the section as read from the file.
+         * @return The normalizer of the section rows.
+         */
+        Rows createRows(final String section, final DataTableSpec spec) {
+            return new Rows(getPort(section), spec, this);
+        }
+
+        private void add(final int port, final int rowId,
+                final int accessionId) {
+            if (m_size == m_ports.length) {
+                m_ports = Arrays.copyOf(m_ports, 2 * m_size);
+                m_rowIds = Arrays.copyOf(m_rowIds, 2 * m_size);
+                m_accessionIds = Arrays.copyOf(m_accessionIds, 2 * m_size);
+            }
+            m_ports[m_size] = port;
+            m_rowIds[m_size] = rowId;
+            m_accessionIds[m_size] = accessionId;
+            ++m_size;
+        }
+    }
+
+    /**
+     * Normalizes the rows of a section of a single file.
+     */
+    final class Rows {
+
+        private final int m_port;
+
+        private final Links m_links;
+
+        private final DataTableSpec m_normalizedSpec;
+
+        /**
+         * The accession column kind of each column of the spec read from the
+         * file: {@link #COPY}, {@link #ID} or {@link #LIST}.
+         */
+        private final int[] m_kinds;
+
+        private static final int COPY = 0;
+
+        private static final int ID = 1;
+
+        private static final int LIST = 2;
+
+        private Rows(final int port, final DataTableSpec spec,
+                final Links links) {
+            m_port = port;
+            m_links = links;
+            m_normalizedSpec = createNormalizedSpec(spec);
+            m_kinds = new int[spec.getNumColumns()];
+            for (int c = 0; c < m_kinds.length; ++c) {
+                DataColumnSpec colSpec = spec.getColumnSpec(c);
+                if (isAccessionColumn(colSpec)) {
+                    m_kinds[c] = isList(colSpec.getType()) ? LIST : ID;
+                }
+            }
+        }
+
+        /**
+         * @return The spec of the normalized rows.
+         */
+        DataTableSpec getSpec() {
+            return m_normalizedSpec;
+        }
+
+        /**
+         * Normalizes the cells of a row and records the links of its
+         * accession lists.
+         * 
+         * @param rowId
+         *            The row id, i.e., the number of the row key.
+         * @param cells
+         *            The cells of the row as read from the file.
+         * @return The cells of the normalized row.
+         */
+        DataCell[] normalize(final int rowId, final DataCell[] cells) {
+            DataCell[] normalized = new DataCell[m_normalizedSpec
+                    .getNumColumns()];
+            int n = 0;
+            normalized[n++] = new IntCell(rowId);
+            for (int c = 0; c < cells.length; ++c) {
+                DataCell cell = cells[c];
+                if (m_kinds[c] == COPY) {
+                    normalized[n++] = cell;
+                } else if (m_kinds[c] == ID) {
+                    normalized[n++] = cell.isMissing() ? cell : new IntCell(
+                            getId(((StringCell) cell).getStringValue()));
+                } else if (!cell.isMissing()) {
+                    ListCell list = (ListCell) cell;
+                    for (int i = 0; i < list.size(); ++i) {
+                        DataCell element = list.get(i);
+                        if (!element.isMissing()) {
+                            m_links.add(m_port, rowId,
+                                    getId(((StringCell) element)
+                                            .getStringValue()));
+                        }
+                    }
+                }
+            }
+            return normalized;
+        }
+    }
+}
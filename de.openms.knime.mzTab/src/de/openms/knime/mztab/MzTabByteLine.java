@@ -0,0 +1,321 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A single line of an mzTab file kept as UTF-8 encoded bytes. The line can be
+ * split into its tab separated fields without creating Strings, so that
+ * numeric values can be parsed directly from the bytes.
+ * 
+ * Instances are not thread-safe. The reader reuses a single instance for all
+ * lines, use {@link #copy()} to keep a line.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabByteLine {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private byte[] m_bytes;
+
+    private int m_length;
+
+    private int[] m_fieldStarts = new int[0];
+
+    private int[] m_fieldEnds = new int[0];
+
+    private int m_numFields;
+
+    /**
+     * The offset of the line in the file or -1 if it is not known.
+     */
+    private long m_fileOffset = -1;
+
+    /**
+     * C'tor.
+     * 
+     * @param capacity
+     *            The initial capacity of the line buffer.
+     */
+    MzTabByteLine(final int capacity) {
+        m_bytes = new byte[capacity];
+    }
+
+    private MzTabByteLine(final byte[] bytes) {
+        m_bytes = bytes;
+        m_length = bytes.length;
+    }
+
+    /**
+     * Replaces the content of this line with the given bytes of the buffer.
+     * 
+     * @param buffer
+     *            The buffer holding the line.
+     * @param offset
+     *            The index of the first byte of the line in the buffer.
+     * @param length
+     *            The number of bytes of the line, excluding the line
+     *            terminator.
+     */
+    void set(final ByteBuffer buffer, final int offset, final int length) {
+        if (m_bytes.length < length) {
+            m_bytes = new byte[Math.max(length, 2 * m_bytes.length)];
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(m_bytes, 0, length);
+        m_length = length;
+        m_numFields = 0;
+    }
+
+    /**
+     * @param fileOffset
+     *            The offset of the line in the file.
+     */
+    void setFileOffset(final long fileOffset) {
+        m_fileOffset = fileOffset;
+    }
+
+    /**
+     * @return The offset of the line in the file or -1 if it is not known.
+     */
+    long getFileOffset() {
+        return m_fileOffset;
+    }
+
+    /**
+     * @return A compact copy of this line that is independent of the reader.
+     */
+    MzTabByteLine copy() {
+        byte[] bytes = new byte[m_length];
+        System.arraycopy(m_bytes, 0, bytes, 0, m_length);
+        MzTabByteLine copy = new MzTabByteLine(bytes);
+        copy.m_fileOffset = m_fileOffset;
+        return copy;
+    }
+
+    /**
+     * @return The number of bytes of the line.
+     */
+    int length() {
+        return m_length;
+    }
+
+    /**
+     * @return The backing array of the line. Only the first {@link #length()}
+     *         bytes are valid.
+     */
+    byte[] getBytes() {
+        return m_bytes;
+    }
+
+    /**
+     * @return The index of the first byte that is not whitespace, or the
+     *         length of the line if it is blank. Whitespace is defined as in
+     *         {@link String#trim()}.
+     */
+    int firstNonWhitespace() {
+        int i = 0;
+        while (i < m_length && (m_bytes[i] & 0xff) <= ' ') {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * @return The number of non-whitespace bytes after stripping leading and
+     *         trailing whitespace, as {@link String#trim()} would.
+     */
+    int trimmedLength() {
+        int end = m_length;
+        while (end > 0 && (m_bytes[end - 1] & 0xff) <= ' ') {
+            --end;
+        }
+        return Math.max(0, end - firstNonWhitespace());
+    }
+
+    /**
+     * Checks if the line contains the given ASCII string at the given offset.
+     * 
+     * @param offset
+     *            The offset in the line.
+     * @param ascii
+     *            The string to compare to.
+     * @return true if the bytes match.
+     */
+    boolean regionMatches(final int offset, final String ascii) {
+        if (offset + ascii.length() > m_length) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); ++i) {
+            if (m_bytes[offset + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the given range of the line is equal to the given ASCII
+     * string.
+     * 
+     * @param start
+     *            The start of the range (inclusive).
+     * @param end
+     *            The end of the range (exclusive).
+     * @param ascii
+     *            The string to compare to.
+     * @return true if the range holds exactly the given string.
+     */
+    boolean equalsAscii(final int start, final int end, final String ascii) {
+        return end - start == ascii.length() && regionMatches(start, ascii);
+    }
+
+    /**
+     * Checks if the given range of the line is equal to the given ASCII
+     * string, ignoring the case of ASCII letters.
+     * 
+     * @param start
+     *            The start of the range (inclusive).
+     * @param end
+     *            The end of the range (exclusive).
+     * @param ascii
+     *            The string to compare to.
+     * @return true if the range holds the given string.
+     */
+    boolean equalsAsciiIgnoreCase(final int start, final int end,
+            final String ascii) {
+        if (end - start != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); ++i) {
+            int b = m_bytes[start + i];
+            int c = ascii.charAt(i);
+            if (b != c && Character.toLowerCase(b) != Character.toLowerCase(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the given range of the line.
+     * 
+     * @param start
+     *            The start of the range (inclusive).
+     * @param end
+     *            The end of the range (exclusive).
+     * @return The decoded String.
+     */
+    String getString(final int start, final int end) {
+        return new String(m_bytes, start, end - start, UTF8);
+    }
+
+    /**
+     * Splits the line at the given separator. As with {@link String#split}
+     * trailing empty fields are dropped.
+     * 
+     * @param separator
+     *            The ASCII field separator.
+     * @return The number of fields.
+     */
+    int tokenize(final char separator) {
+        int n = 0;
+        int start = 0;
+        for (int i = 0; i <= m_length; ++i) {
+            if (i == m_length || m_bytes[i] == separator) {
+                if (n == m_fieldStarts.length) {
+                    growFields();
+                }
+                m_fieldStarts[n] = start;
+                m_fieldEnds[n] = i;
+                ++n;
+                start = i + 1;
+            }
+        }
+        // drop trailing empty fields, keep a single field for empty lines
+        while (n > 1 && m_fieldStarts[n - 1] == m_fieldEnds[n - 1]) {
+            --n;
+        }
+        if (n == 1 && m_length > 0 && m_fieldStarts[0] == m_fieldEnds[0]) {
+            n = 0;
+        }
+        m_numFields = n;
+        return n;
+    }
+
+    private void growFields() {
+        int capacity = Math.max(16, 2 * m_fieldStarts.length);
+        int[] starts = new int[capacity];
+        int[] ends = new int[capacity];
+        System.arraycopy(m_fieldStarts, 0, starts, 0, m_fieldStarts.length);
+        System.arraycopy(m_fieldEnds, 0, ends, 0, m_fieldEnds.length);
+        m_fieldStarts = starts;
+        m_fieldEnds = ends;
+    }
+
+    /**
+     * @return The number of fields found by the last call to
+     *         {@link #tokenize(char)}.
+     */
+    int getNumFields() {
+        return m_numFields;
+    }
+
+    /**
+     * @param field
+     *            The index of the field.
+     * @return The start of the field (inclusive).
+     */
+    int getFieldStart(final int field) {
+        return m_fieldStarts[field];
+    }
+
+    /**
+     * @param field
+     *            The index of the field.
+     * @return The end of the field (exclusive).
+     */
+    int getFieldEnd(final int field) {
+        return m_fieldEnds[field];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getString(0, m_length);
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * A bounded pool of cells for values that repeat across the rows of a file,
+ * e.g., accessions, databases or modifications. Equal values share a single
+ * cell instance. Once the pool holds the maximum number of values, new values
+ * get their own cell but are not added. The pool is used for a single
+ * execution and can be accessed concurrently. Lookups and hits are counted
+ * per thread, so the parser threads do not contend for shared counters.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabCellPool {
+
+    private final int m_capacity;
+
+    private final ConcurrentMap<String, StringCell> m_strings = new ConcurrentHashMap<String, StringCell>();
+
+    /**
+     * Complete list cells by their raw value.
+     */
+    private final ConcurrentMap<String, DataCell> m_lists = new ConcurrentHashMap<String, DataCell>();
+
+    private final AtomicInteger m_size = new AtomicInteger();
+
+    private static final int LOOKUPS = 0;
+
+    private static final int HITS = 1;
+
+    /**
+     * The lookup and hit counts of each thread that used the pool.
+     */
+    private final List<long[]> m_counts = new ArrayList<long[]>();
+
+    private final ThreadLocal<long[]> m_threadCounts = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            long[] counts = new long[2];
+            synchronized (m_counts) {
+                m_counts.add(counts);
+            }
+            return counts;
+        }
+    };
+
+    /**
+     * C'tor.
+     * 
+     * @param capacity
+     *            The maximum number of values held by the pool.
+     */
+    MzTabCellPool(final int capacity) {
+        m_capacity = capacity;
+    }
+
+    /**
+     * @param value
+     *            The value.
+     * @return The shared cell for the value or a new one if the pool is full.
+     */
+    StringCell getStringCell(final String value) {
+        final long[] counts = m_threadCounts.get();
+        ++counts[LOOKUPS];
+        StringCell cell = m_strings.get(value);
+        if (cell != null) {
+            ++counts[HITS];
+            return cell;
+        }
+        cell = new StringCell(value);
+        if (reserve()) {
+            StringCell previous = m_strings.putIfAbsent(value, cell);
+            if (previous != null) {
+                // added concurrently by another thread
+                m_size.decrementAndGet();
+                return previous;
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * @param value
+     *            The raw value of a list field.
+     * @return The shared list cell for the value or null if the value is not
+     *         in the pool.
+     */
+    DataCell getListCell(final String value) {
+        final long[] counts = m_threadCounts.get();
+        ++counts[LOOKUPS];
+        DataCell cell = m_lists.get(value);
+        if (cell != null) {
+            ++counts[HITS];
+        }
+        return cell;
+    }
+
+    /**
+     * Adds a list cell unless the pool is full.
+     * 
+     * @param value
+     *            The raw value of the list field.
+     * @param cell
+     *            The cell created from the value.
+     * @return The shared cell for the value, which is the given cell unless
+     *         another thread added the same value concurrently.
+     */
+    DataCell putListCell(final String value, final DataCell cell) {
+        if (reserve()) {
+            DataCell previous = m_lists.putIfAbsent(value, cell);
+            if (previous != null) {
+                m_size.decrementAndGet();
+                return previous;
+            }
+        }
+        return cell;
+    }
+
+    private boolean reserve() {
+        if (m_size.incrementAndGet() > m_capacity) {
+            m_size.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of values held by the pool.
+     */
+    int size() {
+        return m_size.get();
+    }
+
+    /**
+     * Sums a count over all threads. The counts are only complete once the
+     * threads using the pool have finished.
+     */
+    private long sum(final int count) {
+        long sum = 0;
+        synchronized (m_counts) {
+            for (long[] counts : m_counts) {
+                sum += counts[count];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return The number of looked up values.
+     */
+    long getLookups() {
+        return sum(LOOKUPS);
+    }
+
+    /**
+     * @return The number of looked up values that were found in the pool.
+     */
+    long getHits() {
+        return sum(HITS);
+    }
+
+    /**
+     * @return The fraction of lookups that were found in the pool.
+     */
+    double getHitRate() {
+        long lookups = getLookups();
+        return lookups == 0 ? 0 : getHits() / (double) lookups;
+    }
+}
@@ -0,0 +1,550 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.vector.doublevector.DenseDoubleVectorCell;
+import org.knime.core.data.vector.doublevector.DenseDoubleVectorCellFactory;
+
+import de.openms.knime.parsing.ListSplitter;
+import de.openms.knime.parsing.NumberParser;
+
+/**
+ * Converts the raw values of a single mzTab column into {@link DataCell}s. The
+ * decoders of a section are created once from the {@link DataTableSpec} built
+ * out of the section header, so the per-row loop does not need to inspect the
+ * column types again.
+ * 
+ * Decoders are stateless apart from an optional {@link MzTabCellPool} and can
+ * be shared between threads.
+ * 
+ * @author The OpenMS Team
+ */
+abstract class MzTabColumnDecoder {
+
+    /**
+     * Text columns whose values usually repeat across rows. Their cells are
+     * shared through the cell pool.
+     */
+    private static final Set<String> POOLED_COLUMNS = new HashSet<String>(
+            Arrays.asList("accession", "ambiguity_members", "database",
+                    "database_version", "search_engine", "modifications",
+                    "pre", "post", "species", "uri"));
+
+    /**
+     * Converts the given value into a {@link DataCell}.
+     * 
+     * @param value
+     *            The raw value as found in the mzTab file.
+     * @return The converted cell.
+     */
+    abstract DataCell decode(String value);
+
+    /**
+     * Converts the given field of a line into a {@link DataCell}. The default
+     * implementation decodes the field into a String first, decoders of
+     * numeric columns parse the bytes directly.
+     * 
+     * @param line
+     *            The line holding the value.
+     * @param start
+     *            The start of the field (inclusive).
+     * @param end
+     *            The end of the field (exclusive).
+     * @return The converted cell.
+     */
+    DataCell decode(final MzTabByteLine line, final int start, final int end) {
+        return decode(line.getString(start, end));
+    }
+
+    /**
+     * Converts the entries of a line a column is built from into a
+     * {@link DataCell}. Apart from abundance vectors columns are built from a
+     * single entry, which is decoded by {@link #decode(String)}.
+     * 
+     * @param lineEntries
+     *            The tab separated entries of the line.
+     * @param fields
+     *            The indices of the entries of the column.
+     * @return The converted cell.
+     */
+    DataCell decode(final String[] lineEntries, final int[] fields) {
+        return decode(lineEntries[fields[0]]);
+    }
+
+    /**
+     * Converts the fields of a tokenized line a column is built from into a
+     * {@link DataCell}. Apart from abundance vectors columns are built from a
+     * single field, which is decoded by
+     * {@link #decode(MzTabByteLine, int, int)}.
+     * 
+     * @param line
+     *            The tokenized line.
+     * @param fields
+     *            The indices of the fields of the column.
+     * @return The converted cell.
+     */
+    DataCell decode(final MzTabByteLine line, final int[] fields) {
+        return decode(line, line.getFieldStart(fields[0]),
+                line.getFieldEnd(fields[0]));
+    }
+
+    /**
+     * Creates one decoder per column of the given spec.
+     * 
+     * @param spec
+     *            The spec of the section.
+     * @return The decoders in column order.
+     */
+    static MzTabColumnDecoder[] createDecoders(final DataTableSpec spec) {
+        return createDecoders(spec, null);
+    }
+
+    /**
+     * Creates one decoder per column of the given spec.
+     * 
+     * @param spec
+     *            The spec of the section.
+     * @param pool
+     *            The pool sharing the cells of repeating text values or null.
+     * @return The decoders in column order.
+     */
+    static MzTabColumnDecoder[] createDecoders(final DataTableSpec spec,
+            final MzTabCellPool pool) {
+        MzTabColumnDecoder[] decoders = new MzTabColumnDecoder[spec
+                .getNumColumns()];
+        for (int i = 0; i < decoders.length; ++i) {
+            decoders[i] = createDecoder(spec.getColumnSpec(i), pool);
+        }
+        return decoders;
+    }
+
+    /**
+     * Creates the decoder matching the type of the given column.
+     * 
+     * @param spec
+     *            The column spec.
+     * @param pool
+     *            The pool sharing the cells of repeating text values or null.
+     * @return The decoder for the column.
+     */
+    static MzTabColumnDecoder createDecoder(final DataColumnSpec spec,
+            final MzTabCellPool pool) {
+        DataType type = spec.getType();
+        MzTabCellPool columnPool = POOLED_COLUMNS.contains(spec.getName()
+                .toLowerCase()) ? pool : null;
+        if (type == IntCell.TYPE) {
+            return new IntDecoder();
+        } else if (type == DoubleCell.TYPE) {
+            return new DoubleDecoder();
+        } else if (type == ListCell.getCollectionType(DoubleCell.TYPE)) {
+            // all DoubleLists are separated by pipes in mzTab as of now
+            return new DoubleListDecoder('|');
+        } else if (type == ListCell.getCollectionType(IntCell.TYPE)) {
+            // all IntLists are currently separated by commas in mzTab as of now
+            return new IntListDecoder(',');
+        } else if (type == ListCell.getCollectionType(StringCell.TYPE)) {
+            String col = spec.getName().toLowerCase();
+            if (col.equals("modifications")) {
+                // split by commas not inside square brackets only
+                return new StringListDecoder(',', true, columnPool);
+            } else if (col.equals("accession")
+                    || col.equals("ambiguity_members") || col.equals("pre")
+                    || col.equals("post")) {
+                return new StringListDecoder(',', false, columnPool);
+            } else { // search_engine, spectra_ref, identifier, smiles, inchi_key
+                return new StringListDecoder('|', false, columnPool);
+            }
+        } else if (type == DenseDoubleVectorCell.TYPE) {
+            // start and end positions are separated by commas, retention
+            // times by pipes
+            String col = spec.getName().toLowerCase();
+            if (col.equals("start") || col.equals("end")) {
+                return new DoubleVectorDecoder(',');
+            } else if (col.contains("_abundance")) {
+                return new AbundanceVectorDecoder();
+            }
+            return new DoubleVectorDecoder('|');
+        } else if (type == BooleanCell.TYPE) {
+            return new BooleanDecoder();
+        } else {
+            return new StringDecoder(columnPool);
+        }
+    }
+
+    /**
+     * @return true if the given value represents a missing value in mzTab.
+     */
+    static boolean isMissing(final String value) {
+        return value == null || "null".equals(value) || "-".equals(value);
+    }
+
+    /**
+     * @return true if the given field represents a missing value in mzTab.
+     */
+    static boolean isMissing(final MzTabByteLine line, final int start,
+            final int end) {
+        return line.equalsAscii(start, end, "null")
+                || line.equalsAscii(start, end, "-");
+    }
+
+    private static final class IntDecoder extends MzTabColumnDecoder {
+        @Override
+        DataCell decode(final String value) {
+            if (isMissing(value)) {
+                return new MissingCell(value);
+            }
+            return new IntCell(NumberParser.parseInt(value));
+        }
+
+        @Override
+        DataCell decode(final MzTabByteLine line, final int start,
+                final int end) {
+            if (isMissing(line, start, end)) {
+                return new MissingCell(line.getString(start, end));
+            }
+            return new IntCell(NumberParser.parseInt(line.getBytes(),
+                    start, end));
+        }
+    }
+
+    private static final class DoubleDecoder extends MzTabColumnDecoder {
+        @Override
+        DataCell decode(final String value) {
+            // we need to make sure that it is a proper value
+            if (isMissing(value) || "INF".equals(value) || "NaN".equals(value)) {
+                return new MissingCell(value);
+            }
+            return new DoubleCell(NumberParser.parseDouble(value));
+        }
+
+        @Override
+        DataCell decode(final MzTabByteLine line, final int start,
+                final int end) {
+            if (isMissing(line, start, end)
+                    || line.equalsAscii(start, end, "INF")
+                    || line.equalsAscii(start, end, "NaN")) {
+                return new MissingCell(line.getString(start, end));
+            }
+            return new DoubleCell(NumberParser.parseDouble(
+                    line.getBytes(), start, end));
+        }
+    }
+
+    private static final class DoubleListDecoder extends MzTabColumnDecoder {
+        private final char m_separator;
+
+        DoubleListDecoder(final char separator) {
+            m_separator = separator;
+        }
+
+        @Override
+        DataCell decode(final String value) {
+            if (isMissing(value)) {
+                return new MissingCell(value);
+            }
+            ListSplitter elements = new ListSplitter(value,
+                    m_separator, false);
+            ArrayList<DoubleCell> lc = new ArrayList<DoubleCell>();
+            while (elements.next()) {
+                lc.add(new DoubleCell(NumberParser.parseDouble(value,
+                        elements.start(), elements.end())));
+            }
+            return CollectionCellFactory.createListCell(lc);
+        }
+
+        @Override
+        DataCell decode(final MzTabByteLine line, final int start,
+                final int end) {
+            if (isMissing(line, start, end)) {
+                return new MissingCell(line.getString(start, end));
+            }
+            final byte[] bytes = line.getBytes();
+            ListSplitter elements = new ListSplitter(bytes, start,
+                    end, m_separator, false);
+            ArrayList<DoubleCell> lc = new ArrayList<DoubleCell>();
+            while (elements.next()) {
+                lc.add(new DoubleCell(NumberParser.parseDouble(bytes,
+                        elements.start(), elements.end())));
+            }
+            return CollectionCellFactory.createListCell(lc);
+        }
+    }
+
+    private static final class IntListDecoder extends MzTabColumnDecoder {
+        private final char m_separator;
+
+        IntListDecoder(final char separator) {
+            m_separator = separator;
+        }
+
+        @Override
+        DataCell decode(final String value) {
+            if (isMissing(value)) {
+                return new MissingCell(value);
+            }
+            ListSplitter elements = new ListSplitter(value,
+                    m_separator, false);
+            ArrayList<IntCell> lc = new ArrayList<IntCell>();
+            while (elements.next()) {
+                lc.add(new IntCell(NumberParser.parseInt(value,
+                        elements.start(), elements.end())));
+            }
+            return CollectionCellFactory.createListCell(lc);
+        }
+
+        @Override
+        DataCell decode(final MzTabByteLine line, final int start,
+                final int end) {
+            if (isMissing(line, start, end)) {
+                return new MissingCell(line.getString(start, end));
+            }
+            final byte[] bytes = line.getBytes();
+            ListSplitter elements = new ListSplitter(bytes, start,
+                    end, m_separator, false);
+            ArrayList<IntCell> lc = new ArrayList<IntCell>();
+            while (elements.next()) {
+                lc.add(new IntCell(NumberParser.parseInt(bytes,
+                        elements.start(), elements.end())));
+            }
+            return CollectionCellFactory.createListCell(lc);
+        }
+    }
+
+    /**
+     * Decodes a list of numbers into a vector cell backed by a double array.
+     */
+    private static final class DoubleVectorDecoder extends MzTabColumnDecoder {
+        private final char m_separator;
+
+        DoubleVectorDecoder(final char separator) {
+            m_separator = separator;
+        }
+
+        @Override
+        DataCell decode(final String value) {
+            if (isMissing(value)) {
+                return new MissingCell(value);
+            }
+            ListSplitter elements = new ListSplitter(value,
+                    m_separator, false);
+            double[] values = new double[elements.count()];
+            for (int i = 0; elements.next(); ++i) {
+                values[i] = NumberParser.parseDouble(value,
+                        elements.start(), elements.end());
+            }
+            return new DenseDoubleVectorCellFactory(values).createDataCell();
+        }
+
+        @Override
+        DataCell decode(final MzTabByteLine line, final int start,
+                final int end) {
+            if (isMissing(line, start, end)) {
+                return new MissingCell(line.getString(start, end));
+            }
+            final byte[] bytes = line.getBytes();
+            ListSplitter elements = new ListSplitter(bytes, start,
+                    end, m_separator, false);
+            double[] values = new double[elements.count()];
+            for (int i = 0; elements.next(); ++i) {
+                values[i] = NumberParser.parseDouble(bytes,
+                        elements.start(), elements.end());
+            }
+            return new DenseDoubleVectorCellFactory(values).createDataCell();
+        }
+    }
+
+    /**
+     * Gathers the abundance columns of one kind into a vector cell, missing
+     * abundances become NaN.
+     */
+    private static final class AbundanceVectorDecoder extends
+            MzTabColumnDecoder {
+
+        @Override
+        DataCell decode(final String value) {
+            return new DenseDoubleVectorCellFactory(
+                    new double[] { parseAbundance(value) }).createDataCell();
+        }
+
+        @Override
+        DataCell decode(final String[] lineEntries, final int[] fields) {
+            double[] values = new double[fields.length];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = parseAbundance(lineEntries[fields[i]]);
+            }
+            return new DenseDoubleVectorCellFactory(values).createDataCell();
+        }
+
+        @Override
+        DataCell decode(final MzTabByteLine line, final int[] fields) {
+            final byte[] bytes = line.getBytes();
+            double[] values = new double[fields.length];
+            for (int i = 0; i < values.length; ++i) {
+                int start = line.getFieldStart(fields[i]);
+                int end = line.getFieldEnd(fields[i]);
+                if (isMissing(line, start, end)
+                        || line.equalsAscii(start, end, "NaN")) {
+                    values[i] = Double.NaN;
+                } else if (line.equalsAscii(start, end, "INF")) {
+                    values[i] = Double.POSITIVE_INFINITY;
+                } else {
+                    values[i] = NumberParser.parseDouble(bytes, start, end);
+                }
+            }
+            return new DenseDoubleVectorCellFactory(values).createDataCell();
+        }
+
+        private static double parseAbundance(final String value) {
+            if (isMissing(value) || "NaN".equals(value)) {
+                return Double.NaN;
+            } else if ("INF".equals(value)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return NumberParser.parseDouble(value);
+        }
+    }
+
+    private static final class StringListDecoder extends MzTabColumnDecoder {
+        private final char m_separator;
+
+        private final boolean m_bracketAware;
+
+        private final MzTabCellPool m_pool;
+
+        StringListDecoder(final char separator, final boolean bracketAware,
+                final MzTabCellPool pool) {
+            m_separator = separator;
+            m_bracketAware = bracketAware;
+            m_pool = pool;
+        }
+
+        @Override
+        DataCell decode(final String value) {
+            if (isMissing(value)) {
+                return new MissingCell(value);
+            }
+            if (m_pool != null) {
+                DataCell cell = m_pool.getListCell(value);
+                if (cell != null) {
+                    return cell;
+                }
+            }
+            ListSplitter elements = new ListSplitter(value,
+                    m_separator, m_bracketAware);
+            ArrayList<StringCell> lc = new ArrayList<StringCell>();
+            while (elements.next()) {
+                String str = value.substring(elements.start(), elements.end());
+                lc.add(m_pool != null ? m_pool.getStringCell(str)
+                        : new StringCell(str));
+            }
+            DataCell cell = CollectionCellFactory.createListCell(lc);
+            return m_pool != null ? m_pool.putListCell(value, cell) : cell;
+        }
+
+        @Override
+        DataCell decode(final MzTabByteLine line, final int start,
+                final int end) {
+            if (m_pool != null || isMissing(line, start, end)) {
+                // pooled lists are looked up by their whole value
+                return decode(line.getString(start, end));
+            }
+            ListSplitter elements = new ListSplitter(
+                    line.getBytes(), start, end, m_separator, m_bracketAware);
+            ArrayList<StringCell> lc = new ArrayList<StringCell>();
+            while (elements.next()) {
+                lc.add(new StringCell(line.getString(elements.start(),
+                        elements.end())));
+            }
+            return CollectionCellFactory.createListCell(lc);
+        }
+    }
+
+    private static final class BooleanDecoder extends MzTabColumnDecoder {
+        @Override
+        DataCell decode(final String value) {
+            if (isMissing(value)) {
+                return new MissingCell(value);
+            }
+            if ("1".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value)
+                    || "true".equalsIgnoreCase(value)
+                    || "on".equalsIgnoreCase(value)) {
+                return BooleanCell.TRUE;
+            }
+            return BooleanCell.FALSE;
+        }
+
+        @Override
+        DataCell decode(final MzTabByteLine line, final int start,
+                final int end) {
+            if (isMissing(line, start, end)) {
+                return new MissingCell(line.getString(start, end));
+            }
+            if (line.equalsAsciiIgnoreCase(start, end, "1")
+                    || line.equalsAsciiIgnoreCase(start, end, "yes")
+                    || line.equalsAsciiIgnoreCase(start, end, "true")
+                    || line.equalsAsciiIgnoreCase(start, end, "on")) {
+                return BooleanCell.TRUE;
+            }
+            return BooleanCell.FALSE;
+        }
+    }
+
+    private static final class StringDecoder extends MzTabColumnDecoder {
+        private final MzTabCellPool m_pool;
+
+        StringDecoder(final MzTabCellPool pool) {
+            m_pool = pool;
+        }
+
+        @Override
+        DataCell decode(final String value) {
+            // it is a string value -> just put it into the table
+            return m_pool != null ? m_pool.getStringCell(value)
+                    : new StringCell(value);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+
+/**
+ * Remembers the header lines of the tabular sections of the last read mzTab
+ * files together with the size and modification time of each file. The header
+ * lines are read at the offsets of an existing section index, or by a scan
+ * that stops after the small molecule header or after
+ * {@link #MAX_SCANNED_ROWS} section rows. The headers are only read again if
+ * a file changes.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabHeaderCache {
+
+    private static final String CFG_FILES = "files";
+
+    private static final String CFG_FILE_ENTRY = "file_";
+
+    private static final String CFG_SIZE = "size";
+
+    private static final String CFG_LAST_MODIFIED = "last_modified";
+
+    private static final String CFG_HEADER_LINES = "header_lines";
+
+    private static final String CFG_KNOWN_SECTIONS = "known_sections";
+
+    /**
+     * Maximum number of section rows passed while scanning a file for its
+     * section headers. Files without a small molecule section would be read
+     * entirely otherwise.
+     */
+    static final int MAX_SCANNED_ROWS = 10000;
+
+    /**
+     * Line prefixes of the section headers in the order of the mzTab
+     * specification.
+     */
+    static final String[] HEADER_PREFIXES = { "PRH", "PEH", "PSH", "SMH" };
+
+    /**
+     * The cached files in the order they are read.
+     */
+    private final List<Entry> m_entries = new ArrayList<Entry>();
+
+    /**
+     * @return The files whose headers are cached, empty if there are none.
+     */
+    List<File> getFiles() {
+        List<File> files = new ArrayList<File>(m_entries.size());
+        for (Entry entry : m_entries) {
+            files.add(entry.m_file);
+        }
+        return files;
+    }
+
+    /**
+     * Sets the files whose headers are cached. Headers of files that were
+     * cached before are kept, the others are read by the next call to
+     * {@link #getHeaderLines()}.
+     * 
+     * @param files
+     *            The mzTab files.
+     */
+    void setFiles(final List<File> files) {
+        List<Entry> entries = new ArrayList<Entry>(files.size());
+        for (File file : files) {
+            Entry entry = null;
+            for (Entry cached : m_entries) {
+                if (cached.m_file.equals(file)) {
+                    entry = cached;
+                }
+            }
+            entries.add(entry != null ? entry : new Entry(file));
+        }
+        m_entries.clear();
+        m_entries.addAll(entries);
+    }
+
+    /**
+     * @return The header lines of each file in the order of
+     *         {@link #HEADER_PREFIXES}, null for sections a file does not
+     *         contain.
+     * @throws IOException
+     *             If the headers have to be read and a file cannot be read.
+     */
+    String[][] getHeaderLines() throws IOException {
+        String[][] headerLines = new String[m_entries.size()][];
+        for (int i = 0; i < headerLines.length; ++i) {
+            headerLines[i] = m_entries.get(i).getHeaderLines();
+        }
+        return headerLines;
+    }
+
+    /**
+     * @return For each file the number of leading sections in the order of
+     *         {@link #HEADER_PREFIXES} whose header line is known, i.e., was
+     *         read or is known to be missing. The scan stopped before
+     *         reaching the headers of the following sections. Only valid
+     *         after {@link #getHeaderLines()}.
+     */
+    int[] getKnownSections() {
+        int[] knownSections = new int[m_entries.size()];
+        for (int i = 0; i < knownSections.length; ++i) {
+            knownSections[i] = m_entries.get(i).m_knownSections;
+        }
+        return knownSections;
+    }
+
+    /**
+     * Returns the index of the section whose header the line is, -1 if it is
+     * no section header.
+     */
+    private static int getHeaderIndex(final MzTabByteLine line) {
+        int offset = line.firstNonWhitespace();
+        for (int i = 0; i < HEADER_PREFIXES.length; ++i) {
+            if (line.regionMatches(offset, HEADER_PREFIXES[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the line is a row of a tabular section.
+     */
+    private static boolean isSectionRow(final MzTabByteLine line) {
+        int offset = line.firstNonWhitespace();
+        for (String prefix : MzTabReaderNodeModel.TABLE_SECTIONS) {
+            if (line.regionMatches(offset, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Saves the cache.
+     * 
+     * @param settings
+     *            The settings to write to.
+     */
+    void saveTo(final NodeSettingsWO settings) {
+        String[] files = new String[m_entries.size()];
+        for (int i = 0; i < files.length; ++i) {
+            Entry entry = m_entries.get(i);
+            files[i] = entry.m_file.getAbsolutePath();
+            if (entry.m_headerLines != null) {
+                NodeSettingsWO entrySettings = settings
+                        .addNodeSettings(CFG_FILE_ENTRY + i);
+                entrySettings.addLong(CFG_SIZE, entry.m_size);
+                entrySettings.addLong(CFG_LAST_MODIFIED, entry.m_lastModified);
+                entrySettings.addStringArray(CFG_HEADER_LINES,
+                        entry.m_headerLines);
+                entrySettings.addInt(CFG_KNOWN_SECTIONS,
+                        entry.m_knownSections);
+            }
+        }
+        settings.addStringArray(CFG_FILES, files);
+    }
+
+    /**
+     * Restores a cache saved by {@link #saveTo(NodeSettingsWO)}.
+     * 
+     * @param settings
+     *            The settings to read from.
+     * @throws InvalidSettingsException
+     *             If the settings are incomplete.
+     */
+    void loadFrom(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_entries.clear();
+        if (!settings.containsKey(CFG_FILES)) {
+            return;
+        }
+        String[] files = settings.getStringArray(CFG_FILES);
+        for (int i = 0; i < files.length; ++i) {
+            Entry entry = new Entry(new File(files[i]));
+            if (settings.containsKey(CFG_FILE_ENTRY + i)) {
+                NodeSettingsRO entrySettings = settings
+                        .getNodeSettings(CFG_FILE_ENTRY + i);
+                entry.m_size = entrySettings.getLong(CFG_SIZE);
+                entry.m_lastModified = entrySettings
+                        .getLong(CFG_LAST_MODIFIED);
+                entry.m_headerLines = entrySettings
+                        .getStringArray(CFG_HEADER_LINES);
+                // caches written before the scan was bounded are complete
+                entry.m_knownSections = entrySettings.getInt(
+                        CFG_KNOWN_SECTIONS, HEADER_PREFIXES.length);
+            }
+            m_entries.add(entry);
+        }
+    }
+
+    /**
+     * The cached headers of a single file.
+     */
+    private static final class Entry {
+
+        private final File m_file;
+
+        private long m_size;
+
+        private long m_lastModified;
+
+        /**
+         * The header lines in the order of {@link #HEADER_PREFIXES}, null for
+         * sections the file does not contain. Null if the file was not read
+         * yet.
+         */
+        private String[] m_headerLines;
+
+        /**
+         * See {@link MzTabHeaderCache#getKnownSections()}.
+         */
+        private int m_knownSections;
+
+        Entry(final File file) {
+            m_file = file;
+        }
+
+        String[] getHeaderLines() throws IOException {
+            long size = m_file.length();
+            long lastModified = m_file.lastModified();
+            if (m_headerLines == null || size != m_size
+                    || lastModified != m_lastModified) {
+                readHeaderLines();
+                m_size = size;
+                m_lastModified = lastModified;
+            }
+            return m_headerLines;
+        }
+
+        /**
+         * Reads the header lines of the file. Only the headers are read if
+         * the file has an up-to-date section index, otherwise the lines are
+         * scanned until the small molecule header, the end of the file or
+         * {@link MzTabHeaderCache#MAX_SCANNED_ROWS} section rows.
+         */
+        private void readHeaderLines() throws IOException {
+            String[] headerLines = new String[HEADER_PREFIXES.length];
+            MzTabMappedReader reader = new MzTabMappedReader(m_file);
+            try {
+                MzTabSectionIndex index = MzTabSectionIndex.load(m_file);
+                if (index != null) {
+                    for (MzTabSectionIndex.Section section : index
+                            .getSections()) {
+                        reader.setRange(section.getStart(), section.getEnd());
+                        MzTabByteLine line = reader.readLine();
+                        int i = getHeaderIndex(line);
+                        if (i >= 0 && headerLines[i] == null) {
+                            headerLines[i] = line.toString();
+                        }
+                    }
+                    m_headerLines = headerLines;
+                    m_knownSections = HEADER_PREFIXES.length;
+                    return;
+                }
+
+                // the sections follow each other in the order of the
+                // headers, so a header after the last one found cannot
+                // belong to a section before it
+                int lastFound = -1;
+                int rows = 0;
+                int knownSections = HEADER_PREFIXES.length;
+                MzTabByteLine line;
+                while (lastFound < HEADER_PREFIXES.length - 1
+                        && (line = reader.readLine()) != null) {
+                    int i = getHeaderIndex(line);
+                    if (i >= 0) {
+                        if (headerLines[i] == null) {
+                            headerLines[i] = line.toString();
+                            lastFound = Math.max(lastFound, i);
+                        }
+                    } else if (isSectionRow(line) && ++rows > MAX_SCANNED_ROWS) {
+                        knownSections = lastFound + 1;
+                        break;
+                    }
+                }
+                m_headerLines = headerLines;
+                m_knownSections = knownSections;
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
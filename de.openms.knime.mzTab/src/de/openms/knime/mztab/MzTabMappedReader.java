@@ -0,0 +1,244 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the lines of an mzTab file from a memory-mapped {@link FileChannel}.
+ * The file is mapped in segments that end at the range end at the latest, so
+ * files larger than 2 GB can be read and reading a small range maps only its
+ * own bytes. Line boundaries are searched directly in the mapped bytes and
+ * each line is provided as {@link MzTabByteLine} without decoding it into a
+ * String.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabMappedReader {
+
+    /**
+     * Default number of bytes mapped at once.
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile m_file;
+
+    private final FileChannel m_channel;
+
+    private final long m_size;
+
+    /**
+     * File offset behind the last byte that is read.
+     */
+    private long m_end;
+
+    private int m_segmentSize;
+
+    private MappedByteBuffer m_segment;
+
+    /**
+     * File offset of the first byte of the current segment.
+     */
+    private long m_segmentStart;
+
+    /**
+     * File offset of the next line.
+     */
+    private long m_position;
+
+    /**
+     * File offset of the line returned by the last call to
+     * {@link #readLine()}.
+     */
+    private long m_lineStart;
+
+    /**
+     * The line instance reused for all lines.
+     */
+    private final MzTabByteLine m_line = new MzTabByteLine(1024);
+
+    /**
+     * C'tor.
+     * 
+     * @param file
+     *            The file to read.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    MzTabMappedReader(final File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * C'tor.
+     * 
+     * @param file
+     *            The file to read.
+     * @param segmentSize
+     *            The number of bytes mapped at once. Segments grow if a single
+     *            line does not fit.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    MzTabMappedReader(final File file, final int segmentSize)
+            throws IOException {
+        m_file = new RandomAccessFile(file, "r");
+        m_channel = m_file.getChannel();
+        m_size = m_channel.size();
+        m_end = m_size;
+        m_segmentSize = segmentSize;
+    }
+
+    /**
+     * Restricts reading to the given range of the file. The range has to start
+     * at the beginning of a line.
+     * 
+     * @param start
+     *            The file offset of the first line to read.
+     * @param end
+     *            The file offset behind the last byte to read.
+     */
+    void setRange(final long start, final long end) {
+        m_position = start;
+        m_end = Math.min(end, m_size);
+    }
+
+    /**
+     * @return The file offset of the next line.
+     */
+    long getPosition() {
+        return m_position;
+    }
+
+    /**
+     * @return The file offset behind the last byte that is read.
+     */
+    long getEnd() {
+        return m_end;
+    }
+
+    /**
+     * @return The file offset of the line returned by the last call to
+     *         {@link #readLine()}.
+     */
+    long getLineStart() {
+        return m_lineStart;
+    }
+
+    /**
+     * @return The size of the file in bytes.
+     */
+    long getSize() {
+        return m_size;
+    }
+
+    /**
+     * Reads the next line. Line terminators (\n or \r\n) are not part of the
+     * line.
+     * 
+     * @return The next line or null if the end of the file or range was
+     *         reached. The returned instance is reused by the next call.
+     * @throws IOException
+     *             If the file cannot be mapped.
+     */
+    MzTabByteLine readLine() throws IOException {
+        if (m_position >= m_end) {
+            return null;
+        }
+        m_lineStart = m_position;
+        while (true) {
+            if (m_segment == null || m_position < m_segmentStart
+                    || m_position >= m_segmentStart + m_segment.limit()) {
+                map(m_position);
+            }
+            final MappedByteBuffer segment = m_segment;
+            final int from = (int) (m_position - m_segmentStart);
+            final int limit = (int) Math.min(segment.limit(), m_end
+                    - m_segmentStart);
+            int i = from;
+            while (i < limit && segment.get(i) != '\n') {
+                ++i;
+            }
+
+            final boolean endOfRange = m_segmentStart + limit == m_end;
+            if (i < limit || endOfRange) {
+                int length = i - from;
+                if (length > 0 && segment.get(i - 1) == '\r') {
+                    --length;
+                }
+                m_line.set(segment, from, length);
+                m_line.setFileOffset(m_lineStart);
+                m_position = m_segmentStart + Math.min(i + 1, limit);
+                return m_line;
+            }
+
+            // the line continues behind the current segment
+            if (from == 0) {
+                if (m_segmentSize == Integer.MAX_VALUE) {
+                    throw new IOException("Line at offset " + m_position
+                            + " exceeds the maximum supported line length.");
+                }
+                m_segmentSize = (int) Math.min(Integer.MAX_VALUE,
+                        2L * m_segmentSize);
+            }
+            map(m_position);
+        }
+    }
+
+    /**
+     * Maps the segment starting at the given offset. The segment ends at the
+     * range end at the latest; lines are cut there anyway, so a small range,
+     * e.g. a checkpoint interval of a section index, only maps its own bytes.
+     */
+    private void map(final long position) throws IOException {
+        long length = Math.min(m_segmentSize, m_end - position);
+        m_segment = m_channel.map(FileChannel.MapMode.READ_ONLY, position,
+                length);
+        m_segmentStart = position;
+    }
+
+    /**
+     * Closes the file. The last mapped segment is released once it is
+     * garbage collected.
+     * 
+     * @throws IOException
+     *             If the file cannot be closed.
+     */
+    void close() throws IOException {
+        m_segment = null;
+        m_channel.close();
+        m_file.close();
+    }
+}
@@ -0,0 +1,310 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.knime.core.data.DataCell;
+
+import de.openms.knime.parsing.OrderedExecutor;
+
+/**
+ * Converts the rows of the tabular mzTab sections on a pool of worker threads.
+ * The reading thread collects consecutive lines of a section into batches and
+ * hands them to the workers. If the byte offsets of the rows are known, the
+ * workers can also read a range of the file on their own. The parsed rows are
+ * added to their sections in the order the batches were submitted, i.e., in
+ * file order, by an {@link OrderedExecutor}.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabParallelParser {
+
+    /**
+     * Number of lines handed to a worker at once.
+     */
+    static final int BATCH_SIZE = 1024;
+
+    private final OrderedExecutor<Batch> m_executor;
+
+    /**
+     * The batch currently filled by the reading thread.
+     */
+    private LineBatch m_current;
+
+    /**
+     * C'tor.
+     * 
+     * @param numberOfThreads
+     *            The number of worker threads.
+     */
+    MzTabParallelParser(final int numberOfThreads) {
+        m_executor = new OrderedExecutor<Batch>("MzTabReader",
+                numberOfThreads, new OrderedExecutor.ResultHandler<Batch>() {
+                    @Override
+                    public void handle(final Batch batch) throws Exception {
+                        batch.addRows();
+                    }
+                });
+    }
+
+    /**
+     * Queues a line of the given section for parsing. Rows of batches that
+     * are already parsed are added to their sections.
+     * 
+     * @param section
+     *            The section the line belongs to.
+     * @param line
+     *            The line to parse.
+     * @param lineNumber
+     *            The number of the line in the file or -1 if it is not known.
+     * @throws Exception
+     *             If a previously submitted line could not be parsed.
+     */
+    void parseLine(final MzTabSection section, final String line,
+            final long lineNumber) throws Exception {
+        addLine(section, line, lineNumber);
+    }
+
+    /**
+     * Queues a line of the given section for parsing. The line is copied, so
+     * the reader can reuse the given instance.
+     * 
+     * @param section
+     *            The section the line belongs to.
+     * @param line
+     *            The line to parse.
+     * @param lineNumber
+     *            The number of the line in the file or -1 if it is not known.
+     * @throws Exception
+     *             If a previously submitted line could not be parsed.
+     */
+    void parseLine(final MzTabSection section, final MzTabByteLine line,
+            final long lineNumber) throws Exception {
+        addLine(section, line.copy(), lineNumber);
+    }
+
+    private void addLine(final MzTabSection section, final Object line,
+            final long lineNumber) throws Exception {
+        if (m_current != null && m_current.m_section != section) {
+            submitCurrent();
+        }
+        if (m_current == null) {
+            m_current = new LineBatch(section);
+        }
+        m_current.m_lineNumbers[m_current.m_lines.size()] = lineNumber;
+        m_current.m_lines.add(line);
+        if (m_current.m_lines.size() == BATCH_SIZE) {
+            submitCurrent();
+        }
+    }
+
+    /**
+     * Queues a range of the file for reading and parsing by a worker. All
+     * lines in the range that start with the line prefix of the section are
+     * parsed, other lines are skipped.
+     * 
+     * @param section
+     *            The section the rows belong to.
+     * @param file
+     *            The mzTab file.
+     * @param start
+     *            The file offset of the first line of the range.
+     * @param end
+     *            The file offset behind the last line of the range.
+     * @throws Exception
+     *             If a previously submitted line could not be parsed.
+     */
+    void parseRange(final MzTabSection section, final File file,
+            final long start, final long end) throws Exception {
+        if (m_current != null) {
+            submitCurrent();
+        }
+        m_executor.submit(new RangeBatch(section, file, start, end));
+    }
+
+    /**
+     * Submits the remaining lines and waits until all rows were added to
+     * their sections.
+     * 
+     * @throws Exception
+     *             If one of the lines could not be parsed.
+     */
+    void finish() throws Exception {
+        if (m_current != null) {
+            submitCurrent();
+        }
+        m_executor.finish();
+    }
+
+    /**
+     * Stops all workers, discarding batches that were not yet parsed.
+     */
+    void shutdown() {
+        m_executor.shutdown();
+    }
+
+    private void submitCurrent() throws Exception {
+        Batch batch = m_current;
+        m_current = null;
+        m_executor.submit(batch);
+    }
+
+    /**
+     * Rows of a single section that are parsed by one worker. The worker
+     * returns the batch holding the parsed rows.
+     */
+    private abstract static class Batch implements Callable<Batch> {
+
+        protected final MzTabSection m_section;
+
+        private DataCell[][] m_rows;
+
+        Batch(final MzTabSection section) {
+            m_section = section;
+        }
+
+        @Override
+        public Batch call() throws Exception {
+            m_rows = parse();
+            return this;
+        }
+
+        /**
+         * @return The cells of the parsed rows, null for rows rejected by the
+         *         row filter.
+         * @throws Exception
+         *             If a row could not be parsed.
+         */
+        protected abstract DataCell[][] parse() throws Exception;
+
+        /**
+         * Adds the parsed rows to the section.
+         */
+        void addRows() throws InterruptedException {
+            for (DataCell[] cells : m_rows) {
+                // rows rejected by the row filter are null
+                if (cells != null) {
+                    m_section.addRow(cells);
+                }
+            }
+            m_rows = null;
+        }
+    }
+
+    /**
+     * Consecutive lines of a single section.
+     */
+    private static final class LineBatch extends Batch {
+
+        /**
+         * The lines of the batch, either Strings or {@link MzTabByteLine}s.
+         */
+        private final List<Object> m_lines = new ArrayList<Object>(BATCH_SIZE);
+
+        /**
+         * The line numbers of the lines.
+         */
+        private final long[] m_lineNumbers = new long[BATCH_SIZE];
+
+        LineBatch(final MzTabSection section) {
+            super(section);
+        }
+
+        @Override
+        protected DataCell[][] parse() throws Exception {
+            final long start = System.nanoTime();
+            DataCell[][] rows = new DataCell[m_lines.size()][];
+            for (int i = 0; i < rows.length; ++i) {
+                Object line = m_lines.get(i);
+                if (line instanceof MzTabByteLine) {
+                    rows[i] = m_section.parseCells((MzTabByteLine) line,
+                            m_lineNumbers[i]);
+                } else {
+                    rows[i] = m_section.parseCells((String) line,
+                            m_lineNumbers[i]);
+                }
+            }
+            m_section.getMetrics().addCellTime(System.nanoTime() - start);
+            return rows;
+        }
+    }
+
+    /**
+     * A range of the file holding rows of a single section.
+     */
+    private static final class RangeBatch extends Batch {
+
+        private final File m_file;
+
+        private final long m_start;
+
+        private final long m_end;
+
+        RangeBatch(final MzTabSection section, final File file,
+                final long start, final long end) {
+            super(section);
+            m_file = file;
+            m_start = start;
+            m_end = end;
+        }
+
+        @Override
+        protected DataCell[][] parse() throws Exception {
+            List<DataCell[]> rows = new ArrayList<DataCell[]>(
+                    MzTabSectionIndex.CHECKPOINT_INTERVAL);
+            long cellNanos = 0;
+            MzTabMappedReader reader = new MzTabMappedReader(m_file);
+            try {
+                reader.setRange(m_start, m_end);
+                MzTabByteLine line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.regionMatches(line.firstNonWhitespace(),
+                            m_section.getLinePrefix())) {
+                        final long start = System.nanoTime();
+                        DataCell[] cells = m_section.parseCells(line, -1);
+                        cellNanos += System.nanoTime() - start;
+                        if (cells != null) {
+                            rows.add(cells);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            m_section.getMetrics().addCellTime(cellNanos);
+            return rows.toArray(new DataCell[rows.size()][]);
+        }
+    }
+}
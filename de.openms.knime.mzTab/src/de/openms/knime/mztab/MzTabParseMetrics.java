@@ -0,0 +1,208 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes and rows read by an execution of the mzTab reader and the
+ * time spent reading lines and constructing cells. Reading time is the time
+ * spent fetching lines from the file, i.e., I/O and finding line ends. Cell
+ * construction time covers splitting the rows into fields, filtering and
+ * decoding them; with several parser threads it is summed over all threads
+ * and can exceed the elapsed time. The metrics are updated concurrently by
+ * the threads reading files and parsing rows.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabParseMetrics {
+
+    private final long m_start = System.nanoTime();
+
+    private long m_elapsedNanos = -1;
+
+    private final AtomicLong m_bytes = new AtomicLong();
+
+    private final AtomicLong m_readNanos = new AtomicLong();
+
+    /**
+     * The metrics of each section by its line prefix. The map is not
+     * modified after construction.
+     */
+    private final Map<String, Section> m_sections = new LinkedHashMap<String, Section>();
+
+    /**
+     * C'tor, starts the clock.
+     * 
+     * @param sections
+     *            The line prefixes of the sections.
+     */
+    MzTabParseMetrics(final String[] sections) {
+        for (String section : sections) {
+            m_sections.put(section, new Section());
+        }
+    }
+
+    /**
+     * @param linePrefix
+     *            The line prefix of the section.
+     * @return The metrics of the section.
+     */
+    Section getSection(final String linePrefix) {
+        return m_sections.get(linePrefix);
+    }
+
+    /**
+     * Adds the bytes of a file or a range of a file that was read.
+     * 
+     * @param bytes
+     *            The number of bytes read.
+     * @param readNanos
+     *            The time spent reading the lines.
+     */
+    void addRead(final long bytes, final long readNanos) {
+        m_bytes.addAndGet(bytes);
+        m_readNanos.addAndGet(readNanos);
+    }
+
+    /**
+     * Stops the clock.
+     */
+    void finish() {
+        m_elapsedNanos = System.nanoTime() - m_start;
+    }
+
+    /**
+     * @return The number of bytes read.
+     */
+    long getBytes() {
+        return m_bytes.get();
+    }
+
+    /**
+     * @return The time from construction until {@link #finish()} in
+     *         milliseconds, or until now if not finished yet.
+     */
+    double getElapsedMillis() {
+        long elapsed = m_elapsedNanos >= 0 ? m_elapsedNanos : System
+                .nanoTime() - m_start;
+        return elapsed / 1e6;
+    }
+
+    /**
+     * @return The bytes read per second of elapsed time.
+     */
+    double getBytesPerSecond() {
+        return getBytes() / Math.max(getElapsedMillis() / 1e3, 1e-9);
+    }
+
+    /**
+     * @return The time spent reading lines in milliseconds.
+     */
+    double getReadMillis() {
+        return m_readNanos.get() / 1e6;
+    }
+
+    /**
+     * @return The time spent constructing cells in all sections in
+     *         milliseconds.
+     */
+    double getCellMillis() {
+        double millis = 0;
+        for (Section section : m_sections.values()) {
+            millis += section.getCellMillis();
+        }
+        return millis;
+    }
+
+    /**
+     * @return A summary of the metrics for the log.
+     */
+    String getSummary() {
+        StringBuilder summary = new StringBuilder(String.format(
+                "Read %d bytes in %.0f ms (%.1f MB/s), reading lines %.0f ms, "
+                        + "constructing cells %.0f ms", getBytes(),
+                getElapsedMillis(), getBytesPerSecond() / 1e6,
+                getReadMillis(), getCellMillis()));
+        for (Map.Entry<String, Section> entry : m_sections.entrySet()) {
+            summary.append(String.format("; %s: %d rows, %.0f ms", entry
+                    .getKey(), entry.getValue().getRows(), entry.getValue()
+                    .getCellMillis()));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * The rows and cell construction time of a single section.
+     */
+    static final class Section {
+
+        private final AtomicLong m_rows = new AtomicLong();
+
+        private final AtomicLong m_cellNanos = new AtomicLong();
+
+        /**
+         * Counts rows added to the section table.
+         * 
+         * @param rows
+         *            The number of rows.
+         */
+        void addRows(final long rows) {
+            m_rows.addAndGet(rows);
+        }
+
+        /**
+         * Adds time spent constructing the cells of rows.
+         * 
+         * @param nanos
+         *            The time in nanoseconds.
+         */
+        void addCellTime(final long nanos) {
+            m_cellNanos.addAndGet(nanos);
+        }
+
+        /**
+         * @return The number of rows.
+         */
+        long getRows() {
+            return m_rows.get();
+        }
+
+        /**
+         * @return The time spent constructing cells in milliseconds.
+         */
+        double getCellMillis() {
+            return m_cellNanos.get() / 1e6;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+
+import de.openms.knime.mztab.exceptions.InvalidMzTabFormatException;
+
+/**
+ * Collects the malformed lines skipped by an execution of the mzTab reader
+ * instead of failing it. Once more lines than the error budget are
+ * collected, the execution fails after all. Lines are recorded through a
+ * {@link Recorder} of the file they belong to and can be added concurrently.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabQuarantine {
+
+    /**
+     * Lines are truncated to this number of characters.
+     */
+    static final int MAX_LINE_LENGTH = 1000;
+
+    private final int m_budget;
+
+    private final List<Entry> m_entries = new ArrayList<Entry>();
+
+    /**
+     * The files in the order they are listed in the table.
+     */
+    private final List<File> m_files;
+
+    /**
+     * C'tor.
+     * 
+     * @param budget
+     *            The maximum number of malformed lines.
+     * @param files
+     *            The files that are read.
+     */
+    MzTabQuarantine(final int budget, final List<File> files) {
+        m_budget = budget;
+        m_files = files;
+    }
+
+    /**
+     * @return The spec of the table of malformed lines.
+     */
+    static DataTableSpec createSpec() {
+        return new DataTableSpec(new DataColumnSpec[] {
+                new DataColumnSpecCreator("file", StringCell.TYPE)
+                        .createSpec(),
+                new DataColumnSpecCreator("line_number", LongCell.TYPE)
+                        .createSpec(),
+                new DataColumnSpecCreator("section", StringCell.TYPE)
+                        .createSpec(),
+                new DataColumnSpecCreator("reason", StringCell.TYPE)
+                        .createSpec(),
+                new DataColumnSpecCreator("line", StringCell.TYPE)
+                        .createSpec() });
+    }
+
+    /**
+     * Creates the recorder of the malformed lines of a file.
+     * 
+     * @param file
+     *            One of the files that are read.
+     * @return The recorder.
+     */
+    Recorder createRecorder(final File file) {
+        return new Recorder(file.getAbsolutePath(), m_files.indexOf(file));
+    }
+
+    private synchronized void add(final Entry entry)
+            throws InvalidMzTabFormatException {
+        if (m_entries.size() >= m_budget) {
+            throw new InvalidMzTabFormatException(String.format(
+                    "More than %d malformed lines, the last one in %s line "
+                            + "%s: %s", m_budget, entry.m_file,
+                    entry.m_lineNumber < 0 ? "?" : entry.m_lineNumber,
+                    entry.m_reason));
+        }
+        m_entries.add(entry);
+    }
+
+    /**
+     * @return The number of malformed lines.
+     */
+    synchronized int size() {
+        return m_entries.size();
+    }
+
+    /**
+     * Creates the table of malformed lines, sorted by file, file offset and
+     * line number.
+     * 
+     * @param exec
+     *            The execution context creating the table.
+     * @return The table.
+     */
+    synchronized BufferedDataTable createTable(final ExecutionContext exec) {
+        // parser threads add lines out of order. Lines read through a memory
+        // mapping have an offset, lines read as text always have a number,
+        // so the order does not depend on the threads.
+        List<Entry> entries = new ArrayList<Entry>(m_entries);
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry e1, final Entry e2) {
+                if (e1.m_fileIdx != e2.m_fileIdx) {
+                    return e1.m_fileIdx < e2.m_fileIdx ? -1 : 1;
+                }
+                if (e1.m_offset != e2.m_offset) {
+                    return e1.m_offset < e2.m_offset ? -1 : 1;
+                }
+                return e1.m_lineNumber < e2.m_lineNumber ? -1
+                        : e1.m_lineNumber > e2.m_lineNumber ? 1 : 0;
+            }
+        });
+        BufferedDataContainer container = exec
+                .createDataContainer(createSpec());
+        int rowIdx = 1;
+        for (Entry entry : entries) {
+            DataCell lineNumber = entry.m_lineNumber < 0 ? DataType
+                    .getMissingCell() : new LongCell(entry.m_lineNumber);
+            container.addRowToTable(new DefaultRow(new RowKey("Row "
+                    + rowIdx++), new StringCell(entry.m_file), lineNumber,
+                    new StringCell(entry.m_section), new StringCell(
+                            entry.m_reason), new StringCell(entry.m_line)));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * Records the malformed lines of a single file.
+     */
+    final class Recorder {
+
+        private final String m_file;
+
+        private final int m_fileIdx;
+
+        private Recorder(final String file, final int fileIdx) {
+            m_file = file;
+            m_fileIdx = fileIdx;
+        }
+
+        /**
+         * Records a malformed line.
+         * 
+         * @param lineNumber
+         *            The line number (1-based) or -1 if it is not known.
+         * @param offset
+         *            The offset of the line in the file or -1 if it is not
+         *            known.
+         * @param section
+         *            The line prefix of the section of the line.
+         * @param reason
+         *            Why the line is malformed.
+         * @param line
+         *            The line.
+         * @throws InvalidMzTabFormatException
+         *             If the error budget is exhausted.
+         */
+        void add(final long lineNumber, final long offset,
+                final String section, final String reason, final String line)
+                throws InvalidMzTabFormatException {
+            String truncated = line.length() > MAX_LINE_LENGTH ? line
+                    .substring(0, MAX_LINE_LENGTH) : line;
+            MzTabQuarantine.this.add(new Entry(m_file, m_fileIdx, lineNumber,
+                    offset, section, reason, truncated));
+        }
+    }
+
+    private static final class Entry {
+
+        private final String m_file;
+
+        private final int m_fileIdx;
+
+        private final long m_lineNumber;
+
+        private final long m_offset;
+
+        private final String m_section;
+
+        private final String m_reason;
+
+        private final String m_line;
+
+        Entry(final String file, final int fileIdx, final long lineNumber,
+                final long offset, final String section, final String reason,
+                final String line) {
+            m_file = file;
+            m_fileIdx = fileIdx;
+            m_lineNumber = lineNumber;
+            m_offset = offset;
+            m_section = section;
+            m_reason = reason;
+            m_line = line;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentString;
+
+import de.openms.knime.parsing.ReaderResultCache;
+
+/**
+ * <code>NodeDialog</code> for the "MzTabReader" Node.
+ * 
+ * @author The OpenMS Team
+ */
+public class MzTabReaderNodeDialog extends DefaultNodeSettingsPane {
+
+    /**
+     * New pane for configuring the MzTabReader node.
+     */
+    protected MzTabReaderNodeDialog() {
+        super();
+
+        createNewGroup("Sections");
+        String[] labels = { "Metadata (MTD)", "Proteins (PRT)",
+                "Peptides (PEP)", "PSMs (PSM)", "Small molecules (SML)" };
+        for (int i = 0; i < MzTabReaderNodeModel.SECTIONS.length; ++i) {
+            addDialogComponent(new DialogComponentBoolean(MzTabReaderNodeModel
+                    .createReadSectionModel(MzTabReaderNodeModel.SECTIONS[i]),
+                    labels[i]));
+        }
+        closeCurrentGroup();
+
+        createNewGroup("Parsing");
+        addDialogComponent(new DialogComponentNumber(
+                MzTabReaderNodeModel.createParserThreadsModel(),
+                "Number of parser threads", 1));
+        addDialogComponent(new DialogComponentBoolean(
+                MzTabReaderNodeModel.createMemoryMappedModel(),
+                "Memory-mapped input"));
+        addDialogComponent(new DialogComponentBoolean(
+                MzTabReaderNodeModel.createSectionIndexModel(),
+                "Use section index file"));
+        addDialogComponent(new DialogComponentNumber(
+                MzTabReaderNodeModel.createCellPoolSizeModel(),
+                "Shared cells for repeating values (0 = off)", 10000));
+        addDialogComponent(new DialogComponentBoolean(
+                MzTabReaderNodeModel.createVectorCellsModel(),
+                "Retention times and positions as double vectors"));
+        addDialogComponent(new DialogComponentBoolean(
+                MzTabReaderNodeModel.createAbundanceVectorsModel(),
+                "Abundance columns as double vectors"));
+        addDialogComponent(new DialogComponentBoolean(
+                MzTabReaderNodeModel.createNormalizeAccessionsModel(),
+                "Normalize protein accessions"));
+        addDialogComponent(new DialogComponentBoolean(
+                MzTabReaderNodeModel.createIncrementalModel(),
+                "Only read rows appended since the last execution"));
+        closeCurrentGroup();
+
+        createNewGroup("Malformed lines");
+        addDialogComponent(new DialogComponentBoolean(
+                MzTabReaderNodeModel.createQuarantineModel(),
+                "Skip malformed lines"));
+        addDialogComponent(new DialogComponentNumber(
+                MzTabReaderNodeModel.createErrorBudgetModel(),
+                "Maximum number of malformed lines", 100));
+        closeCurrentGroup();
+
+        createNewGroup("Multiple files");
+        addDialogComponent(new DialogComponentNumber(
+                MzTabReaderNodeModel.createFileThreadsModel(),
+                "Number of files read in parallel", 1));
+        addDialogComponent(new DialogComponentBoolean(
+                MzTabReaderNodeModel.createSourceColumnModel(),
+                "Append source file column for a single file"));
+        addDialogComponent(ReaderResultCache.createDialogComponent());
+        closeCurrentGroup();
+
+        createNewTab("Column Filter");
+        String[] tableLabels = { "Proteins (PRT)", "Peptides (PEP)",
+                "PSMs (PSM)", "Small molecules (SML)" };
+        for (int i = 0; i < MzTabReaderNodeModel.TABLE_SECTIONS.length; ++i) {
+            String section = MzTabReaderNodeModel.TABLE_SECTIONS[i];
+            createNewGroup(tableLabels[i]);
+            addDialogComponent(new DialogComponentString(
+                    MzTabReaderNodeModel.createColumnIncludeModel(section),
+                    "Include columns (regex)"));
+            addDialogComponent(new DialogComponentString(
+                    MzTabReaderNodeModel.createColumnExcludeModel(section),
+                    "Exclude columns (regex)"));
+            closeCurrentGroup();
+        }
+
+        createNewTab("Row Filter");
+        for (int i = 0; i < MzTabReaderNodeModel.TABLE_SECTIONS.length; ++i) {
+            addDialogComponent(new DialogComponentString(MzTabReaderNodeModel
+                    .createRowFilterModel(MzTabReaderNodeModel.TABLE_SECTIONS[i]),
+                    tableLabels[i]));
+        }
+    }
+}
@@ -72,7 +72,7 @@ public class MzTabReaderNodeFactory extends NodeFactory<MzTabReaderNodeModel> {
      */
     @Override
     public boolean hasDialog() {
-        return false;
+        return true;
     }
 
     /**
@@ -80,7 +80,7 @@ public class MzTabReaderNodeFactory extends NodeFactory<MzTabReaderNodeModel> {
      */
     @Override
     public NodeDialogPane createNodeDialogPane() {
-        return null;
+        return new MzTabReaderNodeDialog();
     }
 
 }
@@ -33,12 +33,27 @@ package de.openms.knime.mztab;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -46,9 +61,7 @@ import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
-import org.knime.core.data.MissingCell;
 import org.knime.core.data.RowKey;
-import org.knime.core.data.collection.CollectionCellFactory;
 import org.knime.core.data.collection.ListCell;
 import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.DoubleCell;
@@ -58,6 +71,7 @@ import org.knime.core.data.def.BooleanCell;
 import org.knime.core.data.uri.IURIPortObject;
 import org.knime.core.data.uri.URIContent;
 import org.knime.core.data.uri.URIPortObjectSpec;
+import org.knime.core.data.vector.doublevector.DenseDoubleVectorCell;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -66,16 +80,26 @@ import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettings;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortObjectInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
 
 import de.openms.knime.InvalidInputException;
 import de.openms.knime.mztab.exceptions.InvalidMTDLineException;
 import de.openms.knime.mztab.exceptions.InvalidMzTabFormatException;
-import de.openms.knime.mztab.exceptions.InvalidMzTabLineException;
+import de.openms.knime.parsing.ReaderResultCache;
 
 /**
  * This is the model implementation of MzTabReader. Converts mzTab files into
@@ -89,7 +113,375 @@ public class MzTabReaderNodeModel extends NodeModel {
     private static final NodeLogger logger = NodeLogger
             .getLogger(MzTabReaderNodeModel.class);
 
-    private int metaDataRowIdx, proteinRowIdx, peptideRowIdx, psmRowIdx, smallMolRowIdx;
+    /**
+     * Config key for the number of threads used to parse the tabular sections.
+     */
+    static final String CFG_PARSER_THREADS = "parser_threads";
+
+    /**
+     * Creates the settings model holding the number of threads used to parse
+     * the tabular sections. A single thread parses the file sequentially.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelIntegerBounded createParserThreadsModel() {
+        return new SettingsModelIntegerBounded(CFG_PARSER_THREADS, 1, 1,
+                Integer.MAX_VALUE);
+    }
+
+    private final SettingsModelIntegerBounded m_parserThreads = createParserThreadsModel();
+
+    /**
+     * Config key for reading the file through a memory mapping.
+     */
+    static final String CFG_MEMORY_MAPPED = "memory_mapped";
+
+    /**
+     * Creates the settings model that selects the memory-mapped input path.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createMemoryMappedModel() {
+        return new SettingsModelBoolean(CFG_MEMORY_MAPPED, false);
+    }
+
+    private final SettingsModelBoolean m_memoryMapped = createMemoryMappedModel();
+
+    /**
+     * Config key for reading and writing the section index file.
+     */
+    static final String CFG_SECTION_INDEX = "section_index";
+
+    /**
+     * Creates the settings model that enables the section index file. The
+     * index is used by the memory-mapped input path, which is always taken if
+     * the index is enabled.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createSectionIndexModel() {
+        return new SettingsModelBoolean(CFG_SECTION_INDEX, false);
+    }
+
+    private final SettingsModelBoolean m_sectionIndex = createSectionIndexModel();
+
+    /**
+     * Config key for the number of files that are read concurrently.
+     */
+    static final String CFG_FILE_THREADS = "file_threads";
+
+    /**
+     * Creates the settings model holding the number of files that are read
+     * concurrently if several files are given.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelIntegerBounded createFileThreadsModel() {
+        return new SettingsModelIntegerBounded(CFG_FILE_THREADS, 1, 1,
+                Integer.MAX_VALUE);
+    }
+
+    private final SettingsModelIntegerBounded m_fileThreads = createFileThreadsModel();
+
+    /**
+     * Config key for appending the source file column to a single file.
+     */
+    static final String CFG_SOURCE_COLUMN = "source_column";
+
+    /**
+     * Creates the settings model that appends the source file column even if
+     * a single file is read. With several files the column is always
+     * appended.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createSourceColumnModel() {
+        return new SettingsModelBoolean(CFG_SOURCE_COLUMN, false);
+    }
+
+    private final SettingsModelBoolean m_sourceColumn = createSourceColumnModel();
+
+    /**
+     * Config key for the maximum number of values in the cell pool.
+     */
+    static final String CFG_CELL_POOL_SIZE = "cell_pool_size";
+
+    /**
+     * Creates the settings model holding the maximum number of distinct
+     * values whose cells are shared between rows. 0 disables sharing.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelIntegerBounded createCellPoolSizeModel() {
+        return new SettingsModelIntegerBounded(CFG_CELL_POOL_SIZE, 100000, 0,
+                Integer.MAX_VALUE);
+    }
+
+    private final SettingsModelIntegerBounded m_cellPoolSize = createCellPoolSizeModel();
+
+    /**
+     * Config key for reading number lists into double vector cells.
+     */
+    static final String CFG_VECTOR_CELLS = "vector_cells";
+
+    /**
+     * Creates the settings model that selects double vector cells instead of
+     * list cells for the retention_time, retention_time_window, start and end
+     * columns. List cells are kept by default.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createVectorCellsModel() {
+        return new SettingsModelBoolean(CFG_VECTOR_CELLS, false);
+    }
+
+    private final SettingsModelBoolean m_vectorCells = createVectorCellsModel();
+
+    /**
+     * Config key for gathering the abundance columns into double vectors.
+     */
+    static final String CFG_ABUNDANCE_VECTORS = "abundance_vectors";
+
+    /**
+     * Creates the settings model that gathers the abundance columns of each
+     * kind, e.g., protein_abundance_assay[1] to protein_abundance_assay[n],
+     * into a single double vector column. The names of the gathered columns
+     * are the element names of the vector column.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createAbundanceVectorsModel() {
+        return new SettingsModelBoolean(CFG_ABUNDANCE_VECTORS, false);
+    }
+
+    private final SettingsModelBoolean m_abundanceVectors = createAbundanceVectorsModel();
+
+    /**
+     * Config key for replacing protein accessions by dictionary ids.
+     */
+    static final String CFG_NORMALIZE_ACCESSIONS = "normalize_accessions";
+
+    /**
+     * Creates the settings model that replaces the protein accessions of the
+     * PRT, PEP and PSM tables by the ids of the accession dictionary, see
+     * {@link MzTabAccessionNormalizer}.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createNormalizeAccessionsModel() {
+        return new SettingsModelBoolean(CFG_NORMALIZE_ACCESSIONS, false);
+    }
+
+    private final SettingsModelBoolean m_normalizeAccessions = createNormalizeAccessionsModel();
+
+    /**
+     * Config key for skipping malformed lines instead of failing.
+     */
+    static final String CFG_QUARANTINE = "quarantine";
+
+    /**
+     * Creates the settings model that skips malformed lines and lists them at
+     * the error port instead of failing the execution, see
+     * {@link MzTabQuarantine}.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createQuarantineModel() {
+        return new SettingsModelBoolean(CFG_QUARANTINE, false);
+    }
+
+    private final SettingsModelBoolean m_quarantine = createQuarantineModel();
+
+    /**
+     * Config key for the maximum number of skipped malformed lines.
+     */
+    static final String CFG_ERROR_BUDGET = "error_budget";
+
+    /**
+     * Creates the settings model of the maximum number of malformed lines that
+     * are skipped before the execution fails after all.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelIntegerBounded createErrorBudgetModel() {
+        return new SettingsModelIntegerBounded(CFG_ERROR_BUDGET, 1000, 0,
+                Integer.MAX_VALUE);
+    }
+
+    private final SettingsModelIntegerBounded m_errorBudget = createErrorBudgetModel();
+
+    /**
+     * Config key for reading only the lines appended since the last execution.
+     */
+    static final String CFG_INCREMENTAL = "incremental";
+
+    /**
+     * Creates the settings model that selects incremental reading. Each
+     * execution then only outputs the rows appended to the files since the
+     * previous execution, a file that changed otherwise is read completely.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createIncrementalModel() {
+        return new SettingsModelBoolean(CFG_INCREMENTAL, false);
+    }
+
+    private final SettingsModelBoolean m_incremental = createIncrementalModel();
+
+    /**
+     * Name of the column holding the file a row was read from.
+     */
+    static final String SOURCE_COLUMN = "source_file";
+
+    /**
+     * The line prefixes of the sections in the order of the output ports.
+     */
+    static final String[] SECTIONS = { "MTD", "PRT", "PEP", "PSM", "SML" };
+
+    /**
+     * The output port of the accession dictionary, following the sections.
+     */
+    static final int DICTIONARY_PORT = SECTIONS.length;
+
+    /**
+     * The output port of the links between section rows and accessions.
+     */
+    static final int LINK_PORT = SECTIONS.length + 1;
+
+    /**
+     * The output port of the skipped malformed lines.
+     */
+    static final int ERROR_PORT = SECTIONS.length + 2;
+
+    /**
+     * Config key prefix for the selection of the sections to read.
+     */
+    static final String CFG_READ_SECTION = "read_section_";
+
+    /**
+     * Creates the settings model that selects if the given section is read.
+     * 
+     * @param section
+     *            The line prefix of the section, one of {@link #SECTIONS}.
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createReadSectionModel(final String section) {
+        return new SettingsModelBoolean(CFG_READ_SECTION + section, true);
+    }
+
+    private final SettingsModelBoolean[] m_readSection = new SettingsModelBoolean[SECTIONS.length];
+
+    /**
+     * The line prefixes of the sections whose columns can be filtered.
+     */
+    static final String[] TABLE_SECTIONS = { "PRT", "PEP", "PSM", "SML" };
+
+    /**
+     * Config key prefix for the regular expression selecting the columns of a
+     * section that are read.
+     */
+    static final String CFG_COLUMN_INCLUDE = "column_include_";
+
+    /**
+     * Config key prefix for the regular expression selecting the columns of a
+     * section that are skipped.
+     */
+    static final String CFG_COLUMN_EXCLUDE = "column_exclude_";
+
+    /**
+     * Creates the settings model holding the regular expression that column
+     * names of the given section have to match to be read.
+     * 
+     * @param section
+     *            The line prefix of the section, one of
+     *            {@link #TABLE_SECTIONS}.
+     * @return The settings model.
+     */
+    static SettingsModelString createColumnIncludeModel(final String section) {
+        return new SettingsModelString(CFG_COLUMN_INCLUDE + section, ".*");
+    }
+
+    /**
+     * Creates the settings model holding the regular expression for column
+     * names of the given section that are not read. An empty expression
+     * excludes no column.
+     * 
+     * @param section
+     *            The line prefix of the section, one of
+     *            {@link #TABLE_SECTIONS}.
+     * @return The settings model.
+     */
+    static SettingsModelString createColumnExcludeModel(final String section) {
+        return new SettingsModelString(CFG_COLUMN_EXCLUDE + section, "");
+    }
+
+    private final SettingsModelString[] m_columnInclude = new SettingsModelString[TABLE_SECTIONS.length];
+
+    private final SettingsModelString[] m_columnExclude = new SettingsModelString[TABLE_SECTIONS.length];
+
+    /**
+     * Config key prefix for the row filter of a section.
+     */
+    static final String CFG_ROW_FILTER = "row_filter_";
+
+    /**
+     * Creates the settings model holding the row filter expression of the
+     * given section, see {@link MzTabRowFilter}. An empty expression reads all
+     * rows.
+     * 
+     * @param section
+     *            The line prefix of the section, one of
+     *            {@link #TABLE_SECTIONS}.
+     * @return The settings model.
+     */
+    static SettingsModelString createRowFilterModel(final String section) {
+        return new SettingsModelString(CFG_ROW_FILTER + section, "");
+    }
+
+    private final SettingsModelString[] m_rowFilter = new SettingsModelString[TABLE_SECTIONS.length];
+
+    /**
+     * The number of lines between two progress updates.
+     */
+    private static final int PROGRESS_INTERVAL = 1024;
+
+    /**
+     * Prefix of the flow variables holding the metrics of the last execution.
+     */
+    static final String FLOW_VARIABLE_PREFIX = "mztab_";
+
+    /**
+     * Name of the file in the node internals that holds the header cache.
+     */
+    private static final String INTERNALS_FILE = "internals.xml";
+
+    /**
+     * Key of the tail state in the node internals.
+     */
+    private static final String CFG_TAIL_STATE = "tail_state";
+
+    /**
+     * The section headers of the file read by the last execution. The input
+     * spec does not tell which file will be read, so configure assumes it is
+     * still the same file.
+     */
+    private final MzTabHeaderCache m_headerCache = new MzTabHeaderCache();
+
+    /**
+     * How far the files were read by the last execution in incremental mode.
+     * The state survives the reset before each execution.
+     */
+    private final MzTabTailState m_tailState = new MzTabTailState();
+
+    /**
+     * Copy of the output of the last execution, not used in incremental mode.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
+    /**
+     * Decoders for the two columns of the meta data section.
+     */
+    private final MzTabColumnDecoder[] metaDataDecoders;
 
     /**
      * Create spec for meta data section.
@@ -115,388 +507,1189 @@ public class MzTabReaderNodeModel extends NodeModel {
 						BufferedDataTable.TYPE,
 						BufferedDataTable.TYPE, 
 						BufferedDataTable.TYPE,
+						BufferedDataTable.TYPE,
+						BufferedDataTable.TYPE,
+						BufferedDataTable.TYPE,
 						BufferedDataTable.TYPE 
 						});
 
-        metaDataRowIdx = 1;
-        proteinRowIdx = 1;
-        peptideRowIdx = 1;
-        psmRowIdx = 1;
-        smallMolRowIdx = 1;
+        metaDataDecoders = MzTabColumnDecoder
+                .createDecoders(createMetaDataSectionSpec());
+        for (int i = 0; i < SECTIONS.length; ++i) {
+            m_readSection[i] = createReadSectionModel(SECTIONS[i]);
+        }
+        for (int i = 0; i < TABLE_SECTIONS.length; ++i) {
+            m_columnInclude[i] = createColumnIncludeModel(TABLE_SECTIONS[i]);
+            m_columnExclude[i] = createColumnExcludeModel(TABLE_SECTIONS[i]);
+            m_rowFilter[i] = createRowFilterModel(TABLE_SECTIONS[i]);
+        }
+    }
+
+    /**
+     * @param section
+     *            The line prefix of the section.
+     * @return true if the given section should be read.
+     */
+    private boolean isSectionSelected(final String section) {
+        for (int i = 0; i < SECTIONS.length; ++i) {
+            if (SECTIONS[i].equals(section)) {
+                return m_readSection[i].getBooleanValue();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BufferedDataTable[] execute(final PortObject[] inObjects,
+            final ExecutionContext exec) throws Exception {
+
+        List<File> files = getFiles((IURIPortObject) inObjects[0]);
+        m_headerCache.setFiles(files);
+        String cacheKey = null;
+        if (m_incremental.getBooleanValue()) {
+            m_tailState.rollback();
+            m_resultCache.clear();
+        } else {
+            m_tailState.clear();
+        }
+        if (!m_incremental.getBooleanValue() && m_resultCache.isEnabled()) {
+            NodeSettings settings = new NodeSettings("settings");
+            saveSettingsTo(settings);
+            cacheKey = ReaderResultCache.createKey(getClass().getName() + "\n"
+                    + settings, files);
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                MzTabParseMetrics metrics = new MzTabParseMetrics(SECTIONS);
+                for (int i = 0; i < SECTIONS.length; ++i) {
+                    metrics.getSection(SECTIONS[i]).addRows(cached[i].size());
+                }
+                metrics.finish();
+                pushMetrics(metrics);
+                return cached;
+            }
+        }
+
+        // shared cells for repeating values of all files
+        MzTabCellPool pool = null;
+        if (m_cellPoolSize.getIntValue() > 0) {
+            pool = new MzTabCellPool(m_cellPoolSize.getIntValue());
+        }
+
+        MzTabParseMetrics metrics = new MzTabParseMetrics(SECTIONS);
+        MzTabQuarantine quarantine = createQuarantine(files);
+        MzTabAccessionNormalizer normalizer = new MzTabAccessionNormalizer();
+        try {
+            BufferedDataTable[] tables;
+            if (files.size() == 1 && !m_sourceColumn.getBooleanValue()) {
+                tables = readSections(files.get(0), pool, metrics,
+                        quarantine, null, getAccessionLinks(normalizer), exec);
+            } else {
+                tables = readFiles(files, pool, metrics, quarantine,
+                        normalizer, exec);
+            }
+            tables = appendAccessionTables(tables, normalizer, exec);
+            tables[ERROR_PORT] = createErrorTable(quarantine, exec);
+            m_tailState.commit();
+            if (cacheKey != null) {
+                m_resultCache.put(cacheKey, tables, exec);
+            }
+            if (pool != null) {
+                logger.info(String.format("Cell pool: %d lookups, %d hits "
+                        + "(%.1f%%), %d distinct values", pool.getLookups(),
+                        pool.getHits(), 100 * pool.getHitRate(), pool.size()));
+            }
+            metrics.finish();
+            pushMetrics(metrics);
+            return tables;
+        } catch (CanceledExecutionException e) {
+            logger.info("Canceled execution!");
+        }
+
+        return new BufferedDataTable[getNrOutPorts()];
+    }
+
+    /**
+     * @return The quarantine of malformed lines of an execution or null if
+     *         malformed lines fail the execution.
+     */
+    private MzTabQuarantine createQuarantine(final List<File> files) {
+        if (!m_quarantine.getBooleanValue()) {
+            return null;
+        }
+        return new MzTabQuarantine(m_errorBudget.getIntValue(), files);
+    }
+
+    /**
+     * Creates the table of the error port and warns about skipped lines.
+     */
+    private BufferedDataTable createErrorTable(
+            final MzTabQuarantine quarantine, final ExecutionContext exec) {
+        if (quarantine == null) {
+            BufferedDataContainer container = exec
+                    .createDataContainer(MzTabQuarantine.createSpec());
+            container.close();
+            return container.getTable();
+        }
+        if (quarantine.size() > 0) {
+            setWarningMessage(quarantine.size()
+                    + " malformed line(s) were skipped, see the error port.");
+        }
+        return quarantine.createTable(exec);
+    }
+
+    /**
+     * Records a malformed line outside of the section rows, or throws the
+     * error if malformed lines fail the execution.
+     */
+    private static void quarantineLine(
+            final MzTabQuarantine.Recorder quarantine, final long lineNumber,
+            final String section, final Exception e, final String line)
+            throws Exception {
+        if (quarantine == null) {
+            throw e;
+        }
+        quarantine.add(lineNumber, -1, section, e.getMessage(), line);
+    }
+
+    /**
+     * Records a malformed line read through a memory mapping together with
+     * its file offset.
+     */
+    private static void quarantineLine(
+            final MzTabQuarantine.Recorder quarantine, final long lineNumber,
+            final String section, final Exception e, final MzTabByteLine line)
+            throws Exception {
+        if (quarantine == null) {
+            throw e;
+        }
+        quarantine.add(lineNumber, line.getFileOffset(), section,
+                e.getMessage(), line.toString());
+    }
+
+    /**
+     * @return The files of the given port object.
+     * @throws InvalidInputException
+     *             If the port object holds no URI.
+     */
+    private static List<File> getFiles(final IURIPortObject obj)
+            throws InvalidInputException {
+        List<URIContent> uris = obj.getURIContents();
+        if (uris.size() == 0) {
+            throw new InvalidInputException(
+                    "No URI was supplied in URIPortObject at input port 0");
+        }
+        List<File> files = new ArrayList<File>(uris.size());
+        for (URIContent uri : uris) {
+            files.add(new File(uri.getURI()));
+        }
+        return files;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(
+            final PartitionInfo partitionInfo, final PortObjectSpec[] inSpecs)
+            throws InvalidSettingsException {
+        final DataTableSpec[] configuredSpecs = configure(inSpecs);
+        return new StreamableOperator() {
+            @Override
+            public void runFinal(final PortInput[] inputs,
+                    final PortOutput[] outputs, final ExecutionContext exec)
+                    throws Exception {
+                IURIPortObject obj = (IURIPortObject) ((PortObjectInput) inputs[0])
+                        .getPortObject();
+                RowOutput[] rowOutputs = new RowOutput[outputs.length];
+                for (int i = 0; i < outputs.length; ++i) {
+                    rowOutputs[i] = (RowOutput) outputs[i];
+                }
+                stream(obj, inSpecs, configuredSpecs, rowOutputs, exec);
+            }
+        };
+    }
+
+    /**
+     * Reads a single file and pushes the rows of the PRT, PEP, PSM and SML
+     * sections to the outputs while they are parsed. The meta data and the
+     * accession tables are pushed once the file was read. Several files and
+     * the source column need the complete section tables, in that case the
+     * tables are read as in {@link #execute(PortObject[], ExecutionContext)}
+     * and pushed afterwards.
+     * 
+     * Following nodes were configured with the specs derived from the files
+     * of the last execution. Before anything is pushed, these specs are
+     * compared with the specs derived from the headers of the current files.
+     * If the header scan did not reach a section, the tables are read as
+     * well and their specs are compared before they are pushed.
+     * 
+     * @throws InvalidSettingsException
+     *             If the columns of the current files differ from the
+     *             configured ones.
+     */
+    private void stream(final IURIPortObject obj,
+            final PortObjectSpec[] inSpecs,
+            final DataTableSpec[] configuredSpecs, final RowOutput[] outputs,
+            final ExecutionContext exec) throws Exception {
+        List<File> files = getFiles(obj);
+        m_headerCache.setFiles(files);
+        boolean specsKnown = checkStreamedSpecs(configuredSpecs,
+                configure(inSpecs), files);
+        if (!specsKnown || files.size() > 1
+                || m_sourceColumn.getBooleanValue()) {
+            BufferedDataTable[] tables = execute(new PortObject[] { obj },
+                    exec);
+            exec.checkCanceled();
+            DataTableSpec[] tableSpecs = new DataTableSpec[tables.length];
+            for (int i = 0; i < tables.length; ++i) {
+                tableSpecs[i] = tables[i].getDataTableSpec();
+            }
+            checkStreamedSpecs(configuredSpecs, tableSpecs, files);
+            for (int i = 0; i < outputs.length; ++i) {
+                outputs[i].setFully(tables[i]);
+            }
+            return;
+        }
+
+        if (m_incremental.getBooleanValue()) {
+            m_tailState.rollback();
+        } else {
+            m_tailState.clear();
+        }
+        MzTabCellPool pool = null;
+        if (m_cellPoolSize.getIntValue() > 0) {
+            pool = new MzTabCellPool(m_cellPoolSize.getIntValue());
+        }
+
+        MzTabParseMetrics metrics = new MzTabParseMetrics(SECTIONS);
+        MzTabQuarantine quarantine = createQuarantine(files);
+        MzTabAccessionNormalizer normalizer = new MzTabAccessionNormalizer();
+        BufferedDataTable[] tables = readSections(files.get(0), pool,
+                metrics, quarantine, outputs, getAccessionLinks(normalizer),
+                exec);
+        outputs[0].setFully(tables[0]);
+        outputs[DICTIONARY_PORT].setFully(normalizer
+                .createDictionaryTable(exec));
+        outputs[LINK_PORT].setFully(normalizer.createLinkTable(exec));
+        outputs[ERROR_PORT].setFully(createErrorTable(quarantine, exec));
+        m_tailState.commit();
+        metrics.finish();
+        pushMetrics(metrics);
+    }
+
+    /**
+     * Compares the specs the outputs were configured with to the specs of the
+     * current files.
+     * 
+     * @return false if a spec of the current files is unknown, i.e., the
+     *         header scan did not reach its section.
+     * @throws InvalidSettingsException
+     *             If a known spec differs from the configured one.
+     */
+    private static boolean checkStreamedSpecs(
+            final DataTableSpec[] configuredSpecs,
+            final DataTableSpec[] fileSpecs, final List<File> files)
+            throws InvalidSettingsException {
+        boolean known = true;
+        for (int i = 0; i < configuredSpecs.length; ++i) {
+            if (configuredSpecs[i] == null) {
+                continue;
+            }
+            if (fileSpecs[i] == null) {
+                known = false;
+            } else if (!configuredSpecs[i].equalStructure(fileSpecs[i])) {
+                String port = i < SECTIONS.length ? SECTIONS[i] + " section"
+                        : "port " + i;
+                throw new InvalidSettingsException("The columns of the "
+                        + port + " of " + files
+                        + " differ from the ones the node was configured"
+                        + " with. Configure the node on the current files"
+                        + " before executing it in streaming mode.");
+            }
+        }
+        return known;
+    }
+
+    /**
+     * Writes the metrics of an execution to the log and pushes them as flow
+     * variables: mztab_rows_&lt;section&gt;, mztab_cell_ms_&lt;section&gt;,
+     * mztab_bytes, mztab_bytes_per_second, mztab_elapsed_ms, mztab_read_ms
+     * and mztab_cell_ms.
+     */
+    private void pushMetrics(final MzTabParseMetrics metrics) {
+        logger.info(metrics.getSummary());
+        for (String section : SECTIONS) {
+            MzTabParseMetrics.Section sectionMetrics = metrics
+                    .getSection(section);
+            String suffix = section.toLowerCase();
+            pushFlowVariableInt(FLOW_VARIABLE_PREFIX + "rows_" + suffix,
+                    (int) Math.min(Integer.MAX_VALUE, sectionMetrics.getRows()));
+            pushFlowVariableDouble(FLOW_VARIABLE_PREFIX + "cell_ms_" + suffix,
+                    sectionMetrics.getCellMillis());
+        }
+        // doubles, the byte count of large files exceeds the int range
+        pushFlowVariableDouble(FLOW_VARIABLE_PREFIX + "bytes",
+                metrics.getBytes());
+        pushFlowVariableDouble(FLOW_VARIABLE_PREFIX + "bytes_per_second",
+                metrics.getBytesPerSecond());
+        pushFlowVariableDouble(FLOW_VARIABLE_PREFIX + "elapsed_ms",
+                metrics.getElapsedMillis());
+        pushFlowVariableDouble(FLOW_VARIABLE_PREFIX + "read_ms",
+                metrics.getReadMillis());
+        pushFlowVariableDouble(FLOW_VARIABLE_PREFIX + "cell_ms",
+                metrics.getCellMillis());
+    }
+
+    /**
+     * @return The collector of the accession links of the next file or null
+     *         if accessions are not normalized.
+     */
+    private MzTabAccessionNormalizer.Links getAccessionLinks(
+            final MzTabAccessionNormalizer normalizer) {
+        return m_normalizeAccessions.getBooleanValue() ? normalizer.addFile()
+                : null;
+    }
+
+    /**
+     * Appends the accession dictionary and the link table to the tables of
+     * the sections. Both tables are empty if accessions are not normalized.
+     */
+    private BufferedDataTable[] appendAccessionTables(
+            final BufferedDataTable[] sectionTables,
+            final MzTabAccessionNormalizer normalizer,
+            final ExecutionContext exec) throws CanceledExecutionException {
+        BufferedDataTable[] tables = Arrays.copyOf(sectionTables,
+                getNrOutPorts());
+        tables[DICTIONARY_PORT] = normalizer.createDictionaryTable(exec);
+        tables[LINK_PORT] = normalizer.createLinkTable(exec);
+        return tables;
+    }
+
+    /**
+     * Reads the sections of a single file. This method can be called
+     * concurrently for different files. If outputs are given, the rows of
+     * the PRT, PEP, PSM and SML sections are pushed to the outputs of the
+     * same index instead of being collected in tables. If accession links are
+     * given, the accessions of the PRT, PEP and PSM rows are normalized.
+     * 
+     * @return The tables of the sections in the order of {@link #SECTIONS},
+     *         null for the sections pushed to an output.
+     */
+    private BufferedDataTable[] readSections(final File cXMLFile,
+            final MzTabCellPool pool, final MzTabParseMetrics metrics,
+            final MzTabQuarantine quarantine, final RowOutput[] outputs,
+            final MzTabAccessionNormalizer.Links links,
+            final ExecutionContext exec) throws Exception {
+        MzTabParallelParser parallelParser = null;
+        
+        // container/table for meta data
+        BufferedDataContainer metaDataContainer = null;
+        BufferedDataTable metaDataTable = null;
+        // sections for protein, peptide, psm and small molecule data
+        MzTabSection proteinSection = new MzTabSection("PRT", "PRH", pool,
+                metrics);
+        MzTabSection peptideSection = new MzTabSection("PEP", "PEH", pool,
+                metrics);
+        MzTabSection psmSection = new MzTabSection("PSM", "PSH", pool,
+                metrics);
+        MzTabSection smallMolSection = new MzTabSection("SML", "SMH", pool,
+                metrics);
+        BufferedDataTable proteinDataTable = null;
+        BufferedDataTable peptideDataTable = null;
+        BufferedDataTable psmDataTable = null;
+        BufferedDataTable smallMolTable = null;
+        MzTabQuarantine.Recorder recorder = null;
+        if (quarantine != null) {
+            recorder = quarantine.createRecorder(cXMLFile);
+            proteinSection.setQuarantine(recorder);
+            peptideSection.setQuarantine(recorder);
+            psmSection.setQuarantine(recorder);
+            smallMolSection.setQuarantine(recorder);
+        }
+        if (links != null) {
+            proteinSection.setAccessionLinks(links);
+            peptideSection.setAccessionLinks(links);
+            psmSection.setAccessionLinks(links);
+        }
+        if (outputs != null) {
+            proteinSection.setOutput(outputs[1]);
+            peptideSection.setOutput(outputs[2]);
+            psmSection.setOutput(outputs[3]);
+            smallMolSection.setOutput(outputs[4]);
+        }
+
+        try {
+            // create container for meta data, if it is not read the
+            // container stays null and MTD lines are skipped
+            if (isSectionSelected("MTD")) {
+                metaDataContainer = exec
+                        .createDataContainer(createMetaDataSectionSpec());
+            }
+
+            // hand the section rows to worker threads if requested
+            if (m_parserThreads.getIntValue() > 1) {
+                parallelParser = new MzTabParallelParser(
+                        m_parserThreads.getIntValue());
+            }
+
+            // lines of unselected sections are skipped after comparing their
+            // identifier, their tables stay empty
+            List<MzTabSection> selectedSections = new ArrayList<MzTabSection>();
+            for (MzTabSection section : new MzTabSection[] { proteinSection,
+                    peptideSection, psmSection, smallMolSection }) {
+                if (isSectionSelected(section.getLinePrefix())) {
+                    selectedSections.add(section);
+                }
+            }
+            MzTabSection[] sections = selectedSections
+                    .toArray(new MzTabSection[selectedSections.size()]);
+            if (m_incremental.getBooleanValue()) {
+                readTail(cXMLFile, metaDataContainer, sections,
+                        parallelParser, metrics, recorder, exec);
+            } else if (m_memoryMapped.getBooleanValue()
+                    || m_sectionIndex.getBooleanValue()) {
+                readMappedFile(cXMLFile, metaDataContainer, sections,
+                        parallelParser, metrics, recorder, exec);
+            } else {
+                readFile(cXMLFile, metaDataContainer, sections,
+                        parallelParser, metrics, recorder, exec);
+            }
+
+            // wait for the rows still processed by the workers
+            if (parallelParser != null) {
+                parallelParser.finish();
+            }
+
+            // finalize MTD parsing
+            if (metaDataContainer == null) {
+                metaDataContainer = exec
+                        .createDataContainer(createMetaDataSectionSpec());
+            }
+            metaDataContainer.close();
+            metaDataTable = metaDataContainer.getTable();
+            metrics.getSection("MTD").addRows(metaDataTable.size());
+            // finalize PRT, PEP, PSM and SML parsing
+            proteinDataTable = proteinSection.close(exec);
+            peptideDataTable = peptideSection.close(exec);
+            psmDataTable = psmSection.close(exec);
+            smallMolTable = smallMolSection.close(exec);
+        } finally {
+            if (parallelParser != null)
+                parallelParser.shutdown();
+        }
+
+        return new BufferedDataTable[] { metaDataTable, proteinDataTable, peptideDataTable, psmDataTable, smallMolTable };
+    }
+
+    /**
+     * Reads the given files on up to the configured number of threads and
+     * concatenates the tables of each section, see
+     * {@link #createConcatenatedSpec(DataTableSpec[])}.
+     */
+    private BufferedDataTable[] readFiles(final List<File> files,
+            final MzTabCellPool pool, final MzTabParseMetrics metrics,
+            final MzTabQuarantine quarantine,
+            final MzTabAccessionNormalizer normalizer,
+            final ExecutionContext exec) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+                m_fileThreads.getIntValue(), files.size()));
+        try {
+            List<Future<BufferedDataTable[]>> results = new ArrayList<Future<BufferedDataTable[]>>();
+            // the links are collected in the order of the files
+            final MzTabAccessionNormalizer.Links[] links = new MzTabAccessionNormalizer.Links[files
+                    .size()];
+            for (int i = 0; i < links.length; ++i) {
+                links[i] = getAccessionLinks(normalizer);
+            }
+            for (int i = 0; i < files.size(); ++i) {
+                final File file = files.get(i);
+                final MzTabAccessionNormalizer.Links fileLinks = links[i];
+                final ExecutionContext fileExec = exec
+                        .createSubExecutionContext(0.9 / files.size());
+                results.add(executor
+                        .submit(new Callable<BufferedDataTable[]>() {
+                            @Override
+                            public BufferedDataTable[] call() throws Exception {
+                                return readSections(file, pool, metrics,
+                                        quarantine, null, fileLinks, fileExec);
+                            }
+                        }));
+            }
+
+            BufferedDataTable[][] fileTables = new BufferedDataTable[files
+                    .size()][];
+            for (int i = 0; i < fileTables.length; ++i) {
+                try {
+                    fileTables[i] = results.get(i).get();
+                } catch (ExecutionException e) {
+                    // rethrow the original error
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+
+            ExecutionContext concatExec = exec.createSubExecutionContext(0.1);
+            BufferedDataTable[] tables = new BufferedDataTable[SECTIONS.length];
+            for (int s = 0; s < SECTIONS.length; ++s) {
+                BufferedDataTable[] sectionTables = new BufferedDataTable[files
+                        .size()];
+                for (int i = 0; i < sectionTables.length; ++i) {
+                    sectionTables[i] = fileTables[i][s];
+                }
+                tables[s] = concatenate(SECTIONS[s], sectionTables, files,
+                        links, concatExec);
+            }
+            return tables;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Copies the rows of the tables of a section into one table. Columns a
+     * table lacks are filled with missing values, the last column holds the
+     * file a row was read from. The per-file tables are cleared afterwards.
+     * The row ids of normalized sections follow the new row keys, the
+     * difference is passed to the accession links of the file.
+     */
+    private BufferedDataTable concatenate(final String section,
+            final BufferedDataTable[] tables, final List<File> files,
+            final MzTabAccessionNormalizer.Links[] links,
+            final ExecutionContext exec) throws CanceledExecutionException {
+        DataTableSpec[] specs = new DataTableSpec[tables.length];
+        for (int i = 0; i < tables.length; ++i) {
+            specs[i] = tables[i].getDataTableSpec();
+        }
+        DataTableSpec spec = createConcatenatedSpec(specs);
+        BufferedDataContainer container = exec.createDataContainer(spec);
+        int rowIdColumn = -1;
+        if (links[0] != null && MzTabAccessionNormalizer.isNormalized(section)) {
+            rowIdColumn = spec
+                    .findColumnIndex(MzTabAccessionNormalizer.ROW_ID_COLUMN);
+        }
+
+        int rowIdx = 1;
+        for (int i = 0; i < tables.length; ++i) {
+            // position of each column of the file table in the result
+            int[] columns = new int[specs[i].getNumColumns()];
+            for (int c = 0; c < columns.length; ++c) {
+                columns[c] = spec.findColumnIndex(specs[i].getColumnSpec(c)
+                        .getName());
+            }
+            DataCell source = new StringCell(files.get(i).getAbsolutePath());
+            for (DataRow row : tables[i]) {
+                DataCell[] cells = new DataCell[spec.getNumColumns()];
+                Arrays.fill(cells, DataType.getMissingCell());
+                for (int c = 0; c < columns.length; ++c) {
+                    cells[columns[c]] = row.getCell(c);
+                }
+                if (rowIdColumn >= 0) {
+                    int rowId = ((IntCell) cells[rowIdColumn]).getIntValue();
+                    if (rowId != rowIdx) {
+                        links[i].setRowIdOffset(section, rowIdx - rowId);
+                        cells[rowIdColumn] = new IntCell(rowIdx);
+                    }
+                }
+                cells[cells.length - 1] = source;
+                container.addRowToTable(new DefaultRow(new RowKey("Row "
+                        + rowIdx++), cells));
+                exec.checkCanceled();
+            }
+            exec.clearTable(tables[i]);
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * Creates the spec of a section read from several files. It holds the
+     * columns of all given specs in the order they are first seen, followed by
+     * the source file column.
+     * 
+     * @param specs
+     *            The specs of the section in each file.
+     * @return The spec of the concatenated section.
+     */
+    private static DataTableSpec createConcatenatedSpec(
+            final DataTableSpec[] specs) {
+        List<DataColumnSpec> colSpecs = new ArrayList<DataColumnSpec>();
+        Set<String> names = new HashSet<String>();
+        for (DataTableSpec spec : specs) {
+            for (int c = 0; c < spec.getNumColumns(); ++c) {
+                DataColumnSpec colSpec = spec.getColumnSpec(c);
+                if (names.add(colSpec.getName())) {
+                    // the domain is computed from the concatenated rows
+                    DataColumnSpecCreator creator = new DataColumnSpecCreator(
+                            colSpec.getName(), colSpec.getType());
+                    if (colSpec.getType() == DenseDoubleVectorCell.TYPE) {
+                        // the names of the gathered abundance columns
+                        List<String> elementNames = colSpec.getElementNames();
+                        creator.setElementNames(elementNames
+                                .toArray(new String[elementNames.size()]));
+                    }
+                    colSpecs.add(creator.createSpec());
+                }
+            }
+        }
+        colSpecs.add(new DataColumnSpecCreator(SOURCE_COLUMN, StringCell.TYPE)
+                .createSpec());
+        return new DataTableSpec(colSpecs.toArray(new DataColumnSpec[colSpecs
+                .size()]));
     }
-
+    
+    
     /**
-     * {@inheritDoc}
+     * Reads the file line by line through a {@link BufferedReader}. Only the
+     * given sections are parsed, MTD lines are skipped if the meta data
+     * container is null. The file is decoded as UTF-8 like the lines of the
+     * memory-mapped path.
      */
-    @Override
-    protected BufferedDataTable[] execute(final PortObject[] inObjects,
+    private void readFile(final File file,
+            final BufferedDataContainer metaDataContainer,
+            final MzTabSection[] sections,
+            final MzTabParallelParser parallelParser,
+            final MzTabParseMetrics metrics,
+            final MzTabQuarantine.Recorder quarantine,
             final ExecutionContext exec) throws Exception {
-
-        // reset indices ..
-        metaDataRowIdx = 1;
-        proteinRowIdx = 1;
-        peptideRowIdx = 1;
-        psmRowIdx = 1;
-        smallMolRowIdx = 1;
-
-        // extract file name
-        IURIPortObject obj = (IURIPortObject) inObjects[0];
-        List<URIContent> uris = obj.getURIContents();
-        if (uris.size() == 0) {
-            throw new InvalidInputException(
-                    "No URI was supplied in URIPortObject at input port 0");
-        } else if (uris.size() != 1) {
-            throw new InvalidInputException(String.format(
-                    "We can only demangle a single file but got %d.",
-                    uris.size()));
-        }
-
-        URI relURI = uris.get(0).getURI();
-        File cXMLFile = new File(relURI);
-
         BufferedReader brReader = null;
-        
-        // container/table for meta data
-        BufferedDataContainer metaDataContainer = null;
-        BufferedDataTable metaDataTable = null;
-        // container/table for meta data
-        BufferedDataContainer proteinDataContainer = null;
-        BufferedDataTable proteinDataTable = null;
-        // container/table for meta data
-        BufferedDataContainer peptideDataContainer = null;
-        BufferedDataTable peptideDataTable = null;
-        // container/table for meta data
-        BufferedDataContainer psmDataContainer = null;
-        BufferedDataTable psmDataTable = null;
-        // container/table small molecule data
-        BufferedDataContainer smallMolContainer = null;
-        BufferedDataTable smallMolTable = null;
-
-
         try {
             // read the data and fill the table
             brReader = new BufferedReader(new InputStreamReader(
-                    new FileInputStream(cXMLFile)));
-
-            // validate mzTab starting point
-            String line = brReader.readLine();
+                    new FileInputStream(file), "UTF-8"));
 
-            // create container for meta data
-            metaDataContainer = exec
-                    .createDataContainer(createMetaDataSectionSpec());
+            // progress is estimated from the characters read
+            final double size = Math.max(1, file.length());
+            long bytes = 0;
+            long readNanos = 0;
+            long numLines = 0;
+            String line;
+            for (long readStart = System.nanoTime(); (line = brReader
+                    .readLine()) != null; readStart = System.nanoTime()) {
+                readNanos += System.nanoTime() - readStart;
+                bytes += line.length() + 1;
+                if (++numLines % PROGRESS_INTERVAL == 0) {
+                    exec.setProgress(Math.min(1, bytes / size));
+                }
 
-            // parse MTD lines
-            do {
                 // skip empty lines
                 if (line.trim().length() == 0)
                     continue;
 
                 if (line.trim().length() < 3) {
-                    throw new InvalidMzTabFormatException(
-                            "Found non-empty line without an identifier.");
+                    quarantineLine(quarantine, numLines, "",
+                            new InvalidMzTabFormatException(
+                                    "Found non-empty line without an identifier."),
+                            line);
+                    continue;
                 }
 
                 // extract line identifier
                 final String identifier = line.trim().substring(0, 3);
 
                 if ("MTD".equals(identifier)) { // handle MTD
-                    parseMTDLine(metaDataContainer, line);
-                } else if ("PRH".equals(identifier)) { // handle PRH
-                    DataTableSpec proteinSpec = parseHeaderLine(line, "PRT");
-                    proteinDataContainer = exec.createDataContainer(proteinSpec);
-                } else if ("PRT".equals(identifier)) { // handle PRT
-                    parsePRTLine(proteinDataContainer, line);
-                } else if ("PEH".equals(identifier)) { // handle PEH
-                    DataTableSpec pepSpec = parseHeaderLine(line, "PEP");
-                    peptideDataContainer = exec.createDataContainer(pepSpec);
-                } else if ("PEP".equals(identifier)) { // handle PEP
-                    parsePEPLine(peptideDataContainer, line);
-                } else if ("PSH".equals(identifier)) { // handle PSH
-                    DataTableSpec psmSpec = parseHeaderLine(line, "PSM");
-                    psmDataContainer = exec.createDataContainer(psmSpec);
-                } else if ("PSM".equals(identifier)) { // handle PSM
-                    parsePSMLine(psmDataContainer, line);
-                } else if ("SMH".equals(identifier)) { // handle SMH
-                    DataTableSpec smSpec = parseHeaderLine(line, "SML");
-                    smallMolContainer = exec.createDataContainer(smSpec);
-                } else if ("SML".equals(identifier)) { // handle SML
-                    parseSMLLine(smallMolContainer, line);
+                    if (metaDataContainer != null) {
+                        try {
+                            parseMTDLine(metaDataContainer, line);
+                        } catch (InvalidMTDLineException e) {
+                            quarantineLine(quarantine, numLines, "MTD", e,
+                                    line);
+                        }
+                    }
+                } else {
+                    for (MzTabSection section : sections) {
+                        if (section.getLinePrefix().equals(identifier)) {
+                            parseSectionLine(section, line, numLines,
+                                    parallelParser);
+                            break;
+                        } else if (section.getHeaderPrefix().equals(
+                                identifier)) {
+                            startSection(section, line, parallelParser, exec);
+                            break;
+                        }
+                    }
                 }
                 // allow knime to cancel node execution
                 exec.checkCanceled();
-            } while ((line = brReader.readLine()) != null);
-                        
-            if (proteinDataContainer == null) proteinDataContainer = exec.createDataContainer(createEmptySpec());
-            if (peptideDataContainer == null) peptideDataContainer =  exec.createDataContainer(createEmptySpec());
-            if (psmDataContainer == null)  psmDataContainer = exec.createDataContainer(createEmptySpec());
-            if (smallMolContainer == null) smallMolContainer =  exec.createDataContainer(createEmptySpec());
-
-            // finalize MTD parsing
-            metaDataContainer.close();
-            metaDataTable = metaDataContainer.getTable();
-            // finalize PRT parsing
-            proteinDataContainer.close();
-            proteinDataTable = proteinDataContainer.getTable();
-            // finalize PEP parsing
-            peptideDataContainer.close();
-            peptideDataTable = peptideDataContainer.getTable();
-            // finalize PSM parsing
-            psmDataContainer.close();
-            psmDataTable = psmDataContainer.getTable();
-            
-            // check if the header is valid
-            smallMolContainer.close();
-            smallMolTable = smallMolContainer.getTable();
-        } catch (CanceledExecutionException e) {
-            logger.info("Canceled execution!");
+            }
+            metrics.addRead(bytes, readNanos);
         } finally {
             if (brReader != null)
                 brReader.close();
         }
-
-        return new BufferedDataTable[] { metaDataTable, proteinDataTable, peptideDataTable, psmDataTable, smallMolTable };
     }
-    
-    
-    private void parseMTDLine(BufferedDataContainer metaDataContainer,
-            String line) throws InvalidMTDLineException {
-        String[] line_entries = line.split("\t");
 
-        // check if valid
-        if (line_entries.length != 3) {
-            throw new InvalidMTDLineException(line);
+    /**
+     * Reads the file through a memory mapping. Only header and MTD lines are
+     * decoded into Strings, section rows are handed to the decoders as bytes.
+     * Lines of other than the given sections are skipped based on their
+     * identifier bytes, MTD lines if the meta data container is null. If the
+     * section index is enabled and up to date, only the selected sections are
+     * read, otherwise the index is recorded while reading the whole file.
+     */
+    private void readMappedFile(final File file,
+            final BufferedDataContainer metaDataContainer,
+            final MzTabSection[] sections,
+            final MzTabParallelParser parallelParser,
+            final MzTabParseMetrics metrics,
+            final MzTabQuarantine.Recorder quarantine,
+            final ExecutionContext exec) throws Exception {
+        MzTabSectionIndex index = null;
+        MzTabSectionIndex.Builder indexBuilder = null;
+        if (m_sectionIndex.getBooleanValue()) {
+            index = MzTabSectionIndex.load(file);
+            if (index == null) {
+                indexBuilder = new MzTabSectionIndex.Builder(file);
+            }
         }
 
-        DataCell[] cells = parseGenericLine(line_entries, metaDataContainer);
-        RowKey key = new RowKey("Row " + metaDataRowIdx++);
-        DataRow row = new DefaultRow(key, cells);
-        metaDataContainer.addRowToTable(row);
+        MzTabMappedReader reader = new MzTabMappedReader(file);
+        try {
+            if (index != null) {
+                readIndexedSections(reader, index, file, metaDataContainer,
+                        sections, parallelParser, metrics, quarantine, exec);
+                return;
+            }
+            readMappedLines(reader, indexBuilder, metaDataContainer,
+                    sections, parallelParser, metrics, quarantine, exec);
+        } finally {
+            reader.close();
+        }
+
+        if (indexBuilder != null) {
+            saveSectionIndex(file, indexBuilder.build());
+        }
     }
-    
-    private void parsePRTLine(BufferedDataContainer proteinDataContainer,
-            String line) throws InvalidMzTabLineException,
-            InvalidMzTabFormatException {
-        String[] line_entries = line.split("\t");
 
-        // check if we already have seen a PRT line
-        if (proteinDataContainer == null) {
-            throw new InvalidMzTabFormatException("Found PRT before PRH");
+    /**
+     * Reads the lines of the current range of the reader. Only the given
+     * sections are parsed, MTD lines are skipped if the meta data container is
+     * null. The lines are recorded by the index builder if it is not null.
+     */
+    private void readMappedLines(final MzTabMappedReader reader,
+            final MzTabSectionIndex.Builder indexBuilder,
+            final BufferedDataContainer metaDataContainer,
+            final MzTabSection[] sections,
+            final MzTabParallelParser parallelParser,
+            final MzTabParseMetrics metrics,
+            final MzTabQuarantine.Recorder quarantine,
+            final ExecutionContext exec) throws Exception {
+        final long start = reader.getPosition();
+        final double size = Math.max(1, reader.getEnd() - start);
+        long readNanos = 0;
+        long numLines = 0;
+        MzTabByteLine line;
+        for (long readStart = System.nanoTime(); (line = reader.readLine()) != null; readStart = System
+                .nanoTime()) {
+            readNanos += System.nanoTime() - readStart;
+            if (++numLines % PROGRESS_INTERVAL == 0) {
+                exec.setProgress((reader.getPosition() - start) / size);
+            }
+
+            // skip empty lines
+            int trimmedLength = line.trimmedLength();
+            if (trimmedLength == 0)
+                continue;
+
+            // lines are only numbered if the file is read from the start
+            final long lineNumber = start == 0 ? numLines : -1;
+            if (trimmedLength < 3) {
+                quarantineLine(quarantine, lineNumber, "",
+                        new InvalidMzTabFormatException(
+                                "Found non-empty line without an identifier."),
+                        line);
+                continue;
+            }
+
+            // compare the line identifier without decoding the line
+            final int offset = line.firstNonWhitespace();
+
+            if (indexBuilder != null) {
+                indexBuilder.addLine(line, offset, reader.getLineStart(),
+                        reader.getPosition());
+            }
+
+            if (line.regionMatches(offset, "MTD")) { // handle MTD
+                if (metaDataContainer != null) {
+                    try {
+                        parseMTDLine(metaDataContainer, line.toString());
+                    } catch (InvalidMTDLineException e) {
+                        quarantineLine(quarantine, lineNumber, "MTD", e, line);
+                    }
+                }
+            } else {
+                for (MzTabSection section : sections) {
+                    if (line.regionMatches(offset,
+                            section.getLinePrefix())) {
+                        parseSectionLine(section, line, lineNumber,
+                                parallelParser);
+                        break;
+                    } else if (line.regionMatches(offset,
+                            section.getHeaderPrefix())) {
+                        startSection(section, line.toString(),
+                                parallelParser, exec);
+                        break;
+                    }
+                }
+            }
+            // allow knime to cancel node execution
+            exec.checkCanceled();
+        }
+        metrics.addRead(reader.getPosition() - start, readNanos);
+    }
+
+    /**
+     * Reads the lines appended to the file since the last execution. If the
+     * file was only appended to, the sections are continued with the header
+     * lines and row indices of the last execution, otherwise the whole file is
+     * read. A last line that is not terminated yet is left for the next
+     * execution.
+     */
+    private void readTail(final File file,
+            final BufferedDataContainer metaDataContainer,
+            final MzTabSection[] sections,
+            final MzTabParallelParser parallelParser,
+            final MzTabParseMetrics metrics,
+            final MzTabQuarantine.Recorder quarantine,
+            final ExecutionContext exec) throws Exception {
+        final List<String> headerPrefixes = Arrays
+                .asList(MzTabHeaderCache.HEADER_PREFIXES);
+        String[] headerLines = new String[headerPrefixes.size()];
+        int[] rowIndices = new int[headerPrefixes.size()];
+        Arrays.fill(rowIndices, 1);
+        long start = 0;
+        MzTabTailState.Entry state = m_tailState.get(file);
+        if (state != null && state.isPrefixOf(file)) {
+            start = state.getOffset();
+            for (int i = 0; i < headerLines.length; ++i) {
+                headerLines[i] = state.getHeaderLine(i);
+                rowIndices[i] = state.getRowIndex(i);
+            }
+        } else if (state != null) {
+            logger.info(file + " changed since the last execution and is "
+                    + "read from the start.");
         }
+        final long end = Math.max(start,
+                MzTabTailState.findEndOfLastLine(file));
 
-        // check if valid
-        if (line_entries.length != (proteinDataContainer.getTableSpec()
-                .getNumColumns() + 1)) {
-            throw new InvalidMzTabLineException(line);
+        // continue the sections of the last execution
+        for (MzTabSection section : sections) {
+            int i = headerPrefixes.indexOf(section.getHeaderPrefix());
+            if (headerLines[i] != null) {
+                startSection(section, headerLines[i], parallelParser, exec);
+            }
+            section.setNextRowIndex(rowIndices[i]);
         }
 
-        DataCell[] cells = parseGenericLine(line_entries, proteinDataContainer);
-        RowKey key = new RowKey("Row " + proteinRowIdx++);
-        DataRow row = new DefaultRow(key, cells);
-        proteinDataContainer.addRowToTable(row);
+        MzTabMappedReader reader = new MzTabMappedReader(file);
+        try {
+            reader.setRange(start, end);
+            readMappedLines(reader, null, metaDataContainer, sections,
+                    parallelParser, metrics, quarantine, exec);
+        } finally {
+            reader.close();
+        }
+
+        // the row indices are final once the workers are done
+        if (parallelParser != null) {
+            parallelParser.finish();
+        }
+        for (MzTabSection section : sections) {
+            int i = headerPrefixes.indexOf(section.getHeaderPrefix());
+            headerLines[i] = section.getHeaderLine();
+            rowIndices[i] = section.getNextRowIndex();
+        }
+        m_tailState.update(file, MzTabTailState.Entry.create(file, end,
+                headerLines, rowIndices));
     }
-    
-    
-    private void parsePEPLine(BufferedDataContainer peptideDataContainer,
-            String line) throws InvalidMzTabLineException,
-            InvalidMzTabFormatException {
-        String[] line_entries = line.split("\t");
 
-        // check if we already have seen a PEP line
-        if (peptideDataContainer == null) {
-            throw new InvalidMzTabFormatException("Found PEP before PEH");
+    /**
+     * Reads the MTD lines and the selected sections at the offsets recorded in
+     * the section index. The rows of a section are split into the ranges of
+     * the index and handed to the workers if parsing is parallel.
+     */
+    private void readIndexedSections(final MzTabMappedReader reader,
+            final MzTabSectionIndex index, final File file,
+            final BufferedDataContainer metaDataContainer,
+            final MzTabSection[] sections,
+            final MzTabParallelParser parallelParser,
+            final MzTabParseMetrics metrics,
+            final MzTabQuarantine.Recorder quarantine,
+            final ExecutionContext exec) throws Exception {
+        // the number of rows to read is known in advance
+        long totalRows = 0;
+        for (MzTabSectionIndex.Section indexed : index.getSections()) {
+            if ("MTD".equals(indexed.getLinePrefix()) ? metaDataContainer != null
+                    : findSection(sections, indexed.getLinePrefix()) != null) {
+                totalRows += indexed.getRowCount();
+            }
         }
+        totalRows = Math.max(1, totalRows);
+        long rowsRead = 0;
 
-        // check if valid
-        if (line_entries.length != (peptideDataContainer.getTableSpec()
-                .getNumColumns() + 1)) {
-            throw new InvalidMzTabLineException(line);
+        MzTabByteLine line;
+        for (MzTabSectionIndex.Section indexed : index.getSections()) {
+            final String prefix = indexed.getLinePrefix();
+            if ("MTD".equals(prefix)) {
+                if (metaDataContainer == null) {
+                    continue;
+                }
+                reader.setRange(indexed.getStart(), indexed.getEnd());
+                while ((line = reader.readLine()) != null) {
+                    if (line.regionMatches(line.firstNonWhitespace(), prefix)) {
+                        try {
+                            parseMTDLine(metaDataContainer, line.toString());
+                        } catch (InvalidMTDLineException e) {
+                            quarantineLine(quarantine, -1, "MTD", e, line);
+                        }
+                    }
+                    exec.checkCanceled();
+                }
+                metrics.addRead(indexed.getEnd() - indexed.getStart(), 0);
+                rowsRead += indexed.getRowCount();
+                exec.setProgress(rowsRead / (double) totalRows);
+                continue;
+            }
+
+            final MzTabSection section = findSection(sections, prefix);
+            if (section == null) {
+                continue;
+            }
+
+            // the header is the first line of the indexed section, the time
+            // spent reading lines is part of the cell construction time
+            metrics.addRead(indexed.getEnd() - indexed.getStart(), 0);
+            reader.setRange(indexed.getStart(), indexed.getEnd());
+            startSection(section, reader.readLine().toString(),
+                    parallelParser, exec);
+
+            if (parallelParser != null) {
+                for (int i = 0; i < indexed.getNumRanges(); ++i) {
+                    parallelParser.parseRange(section, file,
+                            indexed.getRangeStart(i), indexed.getRangeEnd(i));
+                    rowsRead += indexed.getRangeRowCount(i);
+                    exec.setProgress(rowsRead / (double) totalRows);
+                    exec.checkCanceled();
+                }
+            } else {
+                while ((line = reader.readLine()) != null) {
+                    if (line.regionMatches(line.firstNonWhitespace(), prefix)) {
+                        section.parseLine(line, -1);
+                        if (++rowsRead % MzTabSectionIndex.CHECKPOINT_INTERVAL == 0) {
+                            exec.setProgress(rowsRead / (double) totalRows);
+                        }
+                    }
+                    exec.checkCanceled();
+                }
+            }
         }
+    }
 
-        DataCell[] cells = parseGenericLine(line_entries, peptideDataContainer);
-        RowKey key = new RowKey("Row " + peptideRowIdx++);
-        DataRow row = new DefaultRow(key, cells);
-        peptideDataContainer.addRowToTable(row);
+    private static MzTabSection findSection(final MzTabSection[] sections,
+            final String linePrefix) {
+        for (MzTabSection section : sections) {
+            if (section.getLinePrefix().equals(linePrefix)) {
+                return section;
+            }
+        }
+        return null;
     }
-    
-    private void parsePSMLine(BufferedDataContainer psmDataContainer,
-            String line) throws InvalidMzTabLineException,
-            InvalidMzTabFormatException {
+
+    /**
+     * Writes the section index next to the file. Failing to do so, e.g.,
+     * because the directory is read-only, does not fail the execution.
+     */
+    private void saveSectionIndex(final File file,
+            final MzTabSectionIndex index) {
+        if (index == null) {
+            logger.info("The sections of " + file
+                    + " are not contiguous, no section index is written.");
+            return;
+        }
+        try {
+            index.save();
+        } catch (IOException e) {
+            logger.warn("Could not write the section index of " + file + ": "
+                    + e.getMessage());
+        }
+    }
+
+    private void startSection(final MzTabSection section, final String line,
+            final MzTabParallelParser parallelParser,
+            final ExecutionContext exec) throws Exception {
+        // all rows of a previous header have to be added before the section
+        // is (re-)started
+        if (parallelParser != null) {
+            parallelParser.finish();
+        }
         String[] line_entries = line.split("\t");
+        int[][] fields = groupFields(line_entries,
+                selectFields(line_entries, section.getLinePrefix()));
+        MzTabRowFilter rowFilter = null;
+        for (int i = 0; i < TABLE_SECTIONS.length; ++i) {
+            if (TABLE_SECTIONS[i].equals(section.getLinePrefix())) {
+                rowFilter = MzTabRowFilter.parse(m_rowFilter[i]
+                        .getStringValue());
+            }
+        }
+        section.start(line,
+                createSectionSpec(line_entries, fields,
+                        section.getLinePrefix()), fields,
+                line_entries.length,
+                rowFilter == null ? null : rowFilter.bind(line_entries), exec);
+    }
+
+    private void parseSectionLine(final MzTabSection section,
+            final String line, final long lineNumber,
+            final MzTabParallelParser parallelParser) throws Exception {
+        if (parallelParser != null) {
+            parallelParser.parseLine(section, line, lineNumber);
+        } else {
+            section.parseLine(line, lineNumber);
+        }
+    }
 
-        // check if we already have seen a PSM line
-        if (psmDataContainer == null) {
-            throw new InvalidMzTabFormatException("Found PSM before PSH");
+    private void parseSectionLine(final MzTabSection section,
+            final MzTabByteLine line, final long lineNumber,
+            final MzTabParallelParser parallelParser) throws Exception {
+        if (parallelParser != null) {
+            parallelParser.parseLine(section, line, lineNumber);
+        } else {
+            section.parseLine(line, lineNumber);
         }
+    }
+
+    private void parseMTDLine(BufferedDataContainer metaDataContainer,
+            String line) throws InvalidMTDLineException {
+        String[] line_entries = line.split("\t");
 
         // check if valid
-        if (line_entries.length != (psmDataContainer.getTableSpec()
-                .getNumColumns() + 1)) {
-            throw new InvalidMzTabLineException(line);
+        if (line_entries.length != 3) {
+            throw new InvalidMTDLineException(line);
         }
 
-        DataCell[] cells = parseGenericLine(line_entries, psmDataContainer);
-        RowKey key = new RowKey("Row " + psmRowIdx++);
+        DataCell[] cells = new DataCell[metaDataDecoders.length];
+        for (int i = 0; i < cells.length; ++i) {
+            cells[i] = metaDataDecoders[i].decode(line_entries[i + 1]);
+        }
+        RowKey key = new RowKey("Row " + (metaDataContainer.size() + 1));
         DataRow row = new DefaultRow(key, cells);
-        psmDataContainer.addRowToTable(row);
+        metaDataContainer.addRowToTable(row);
     }
-    
-    
 
-    private void parseSMLLine(BufferedDataContainer smallMolDataContainer,
-            String line) throws InvalidMzTabLineException,
-            InvalidMzTabFormatException {
+    private DataTableSpec parseHeaderLine(final String line, final String section) {
         String[] line_entries = line.split("\t");
+        return createSectionSpec(line_entries,
+                groupFields(line_entries, selectFields(line_entries, section)),
+                section);
+    }
 
-        // check if we already have seen a SMH line
-        if (smallMolDataContainer == null) {
-            throw new InvalidMzTabFormatException("Found SML before SMH");
-        }
+    private DataTableSpec createSectionSpec(final String[] line_entries,
+            final int[][] fields, final String section) {
+        DataColumnSpec[] colSpecs = new DataColumnSpec[fields.length];
 
-        // check if valid
-        if (line_entries.length != (smallMolDataContainer.getTableSpec()
-                .getNumColumns() + 1)) {
-            throw new InvalidMzTabLineException(line);
+        for (int i = 0; i < fields.length; ++i) {
+            String name = line_entries[fields[i][0]];
+            String vectorName = getAbundanceVectorName(name.trim());
+            if (vectorName != null) {
+                String[] elementNames = new String[fields[i].length];
+                for (int e = 0; e < elementNames.length; ++e) {
+                    elementNames[e] = line_entries[fields[i][e]].trim();
+                }
+                DataColumnSpecCreator creator = new DataColumnSpecCreator(
+                        vectorName, DenseDoubleVectorCell.TYPE);
+                creator.setElementNames(elementNames);
+                colSpecs[i] = creator.createSpec();
+            } else {
+                DataType type = getDataType(name, section);
+                colSpecs[i] = new DataColumnSpecCreator(name, type)
+                        .createSpec();
+            }
         }
 
-        DataCell[] cells = parseGenericLine(line_entries, smallMolDataContainer);
-        RowKey key = new RowKey("Row " + smallMolRowIdx++);
-        DataRow row = new DefaultRow(key, cells);
-        smallMolDataContainer.addRowToTable(row);
+        return new DataTableSpec(colSpecs);
     }
-    
 
-    private DataCell[] parseGenericLine(final String[] line_entries,
-            BufferedDataContainer container) {
-        DataCell[] cells = new DataCell[container.getTableSpec()
-                .getNumColumns()];
-        // convert the entries into a table column
-        //TODO Think about putting separators and missing values as constant values.
-        for (int i = 0; i < container.getTableSpec().getNumColumns(); ++i) {
-        	DataColumnSpec spec = container.getTableSpec().getColumnSpec(i);
-            if (spec.getType() == IntCell.TYPE) {
-                if (line_entries[i + 1] == null
-                        || "null".equals(line_entries[i + 1])
-                        || "-".equals(line_entries[i + 1])) {
-                    cells[i] = new MissingCell(line_entries[i + 1]);
-                } else {
-                    cells[i] = new IntCell(
-                            Integer.parseInt(line_entries[i + 1]));
-                }
-            } else if (spec.getType() == DoubleCell.TYPE) {
-                // we need to make sure that it is a proper value
-                if (line_entries[i + 1] == null
-                        || "INF".equals(line_entries[i + 1])
-                        || "NaN".equals(line_entries[i + 1])
-                        || "null".equals(line_entries[i + 1])
-                        || "-".equals(line_entries[i + 1])) {
-                    cells[i] = new MissingCell(line_entries[i + 1]);
-                } else {
-                    cells[i] = new DoubleCell(
-                            Double.parseDouble(line_entries[i + 1]));
-                }
-            } else if (spec.getType() == ListCell.getCollectionType(DoubleCell.TYPE)) {
-                // we need to make sure that it is a proper value
-                if (line_entries[i + 1] == null
-                        || "null".equals(line_entries[i + 1])
-                        || "-".equals(line_entries[i + 1])) {
-                    cells[i] = new MissingCell(line_entries[i + 1]);
-                } else {
-                	ArrayList<DoubleCell> lc = new ArrayList<DoubleCell>();
-                	// all DoubleLists are separated by pipes in mzTab as of now
-                	String[] sl = line_entries[i + 1].split("\\|");
-                	for (String dstr : sl)
-                	{
-                		double d = Double.parseDouble(dstr);
-                		lc.add(new DoubleCell(d));
-                	}
-                	ListCell outputCell = CollectionCellFactory.createListCell(lc);
-                	cells[i] = outputCell;
-                }
-            } else if (spec.getType() == ListCell.getCollectionType(IntCell.TYPE)) {
-                // we need to make sure that it is a proper value
-                if (line_entries[i + 1] == null
-                        || "null".equals(line_entries[i + 1])
-                        || "-".equals(line_entries[i + 1])) {
-                    cells[i] = new MissingCell(line_entries[i + 1]);
-                } else {
-                	ArrayList<IntCell> lc = new ArrayList<IntCell>();
-                	// all IntLists are currently separated by commas in mzTab as of now
-                	for (String dstr : line_entries[i + 1].split(","))
-                	{
-                		int j = Integer.parseInt(dstr);
-                		lc.add(new IntCell(j));
-                	}
-                	ListCell outputCell = CollectionCellFactory.createListCell(lc);
-                	cells[i] = outputCell;
-                }
-            } else if (spec.getType() == ListCell.getCollectionType(StringCell.TYPE)) {
-            	String col = spec.getName().toLowerCase();
-            	// we need to make sure that it is a proper value
-                if (line_entries[i + 1] == null
-                        || "null".equals(line_entries[i + 1])
-                        || "-".equals(line_entries[i + 1])) {
-                    cells[i] = new MissingCell(line_entries[i + 1]);
-                } else {
-                	ArrayList<StringCell> lc = new ArrayList<StringCell>();
-                	String[] sl;
-                	if (col.equals("modifications"))
-                	{
-                		// split by commas not inside square brackets only
-                		sl = line_entries[i + 1].split(",(?![^\\[\\]]*+\\])"); 
-                	} else if (col.equals("accession") || col.equals("ambiguity_members") || col.equals("pre") || col.equals("post")) {
-                		sl = line_entries[i + 1].split(",");
-                	} else { // search_engine, spectra_ref, identifier, smiles, inchi_key
-                		sl = line_entries[i + 1].split("\\|");
-                	}
-                	
-                	for (String str : sl)
-                	{
-                		lc.add(new StringCell(str));
-                	}
-                	ListCell outputCell = CollectionCellFactory.createListCell(lc);
-                	cells[i] = outputCell;
-                }
-            } else if (spec.getType() == BooleanCell.TYPE) {
-                // we need to make sure that it is a proper value
-                if (line_entries[i + 1] == null
-                        || "null".equals(line_entries[i + 1])
-                        || "-".equals(line_entries[i + 1])) {
-                    cells[i] = new MissingCell(line_entries[i + 1]);
-                } else {
-                	BooleanCell cell = BooleanCell.FALSE;
-                	if (convertToBoolean(line_entries[i + 1])) {
-                		cell = BooleanCell.TRUE;
-                	}
-                	cells[i] = cell;
+    /**
+     * Assigns the selected header entries to the columns of the section. If
+     * abundance vectors are read, all indexed abundance entries of one kind
+     * form a single column at the position of their first entry. Every other
+     * entry forms a column of its own.
+     * 
+     * @return The indices of the header entries of each column.
+     */
+    private int[][] groupFields(final String[] line_entries,
+            final int[] fields) {
+        List<int[]> columns = new ArrayList<int[]>(fields.length);
+        Map<String, Integer> vectorColumns = new HashMap<String, Integer>();
+        for (int field : fields) {
+            String vectorName = getAbundanceVectorName(line_entries[field]
+                    .trim());
+            Integer column = vectorName == null ? null : vectorColumns
+                    .get(vectorName);
+            if (column == null) {
+                if (vectorName != null) {
+                    vectorColumns.put(vectorName, columns.size());
                 }
+                columns.add(new int[] { field });
             } else {
-                // it is a string value -> just put it into the
-                // table
-                cells[i] = new StringCell(line_entries[i + 1]);
+                int[] vectorFields = columns.get(column);
+                vectorFields = Arrays.copyOf(vectorFields,
+                        vectorFields.length + 1);
+                vectorFields[vectorFields.length - 1] = field;
+                columns.set(column, vectorFields);
             }
         }
-        return cells;
+        return columns.toArray(new int[columns.size()][]);
     }
-    
-    private boolean convertToBoolean(String value) {
-        boolean returnValue = false;
-        if ("1".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value) || 
-            "true".equalsIgnoreCase(value) || "on".equalsIgnoreCase(value))
-            returnValue = true;
-        return returnValue;
+
+    /**
+     * @return The name of the vector column the given abundance column is
+     *         gathered into, i.e., the column name without its index, or null
+     *         if abundance vectors are not read or the column is none of them.
+     */
+    private String getAbundanceVectorName(final String fieldName) {
+        if (!m_abundanceVectors.getBooleanValue()) {
+            return null;
+        }
+        Matcher m = regIndexedAbundance.matcher(fieldName);
+        return m.matches() ? m.group(1) : null;
     }
 
-    private DataTableSpec parseHeaderLine(final String line, final String section) {
-        String[] line_entries = line.split("\t");
-        DataColumnSpec[] colSpecs = new DataColumnSpec[line_entries.length - 1];
+    /**
+     * Applies the column filter of the section to the entries of its header
+     * line.
+     * 
+     * @return The indices of the header entries of the columns that are read.
+     */
+    private int[] selectFields(final String[] line_entries,
+            final String section) {
+        Pattern include = null;
+        Pattern exclude = null;
+        for (int i = 0; i < TABLE_SECTIONS.length; ++i) {
+            if (TABLE_SECTIONS[i].equals(section)) {
+                include = Pattern.compile(m_columnInclude[i].getStringValue());
+                if (m_columnExclude[i].getStringValue().length() > 0) {
+                    exclude = Pattern.compile(m_columnExclude[i]
+                            .getStringValue());
+                }
+            }
+        }
 
+        int[] fields = new int[line_entries.length - 1];
+        int numFields = 0;
         for (int i = 1; i < line_entries.length; ++i) {
-            DataType type = getDataType(line_entries[i], section);
-            colSpecs[i - 1] = new DataColumnSpecCreator(line_entries[i], type)
-                    .createSpec();
+            if ((include == null || include.matcher(line_entries[i]).matches())
+                    && (exclude == null || !exclude.matcher(line_entries[i])
+                            .matches())) {
+                fields[numFields++] = i;
+            }
         }
-
-        return new DataTableSpec(colSpecs);
+        return Arrays.copyOf(fields, numFields);
     }
     
     private DataTableSpec createEmptySpec() {
@@ -511,6 +1704,9 @@ public class MzTabReaderNodeModel extends NodeModel {
             return IntCell.TYPE;
         } else if (isBool(trimmed)) {
             return BooleanCell.TYPE;
+        } else if (m_vectorCells.getBooleanValue()
+                && (isDoubleList(trimmed) || isIntList(trimmed))) {
+            return DenseDoubleVectorCell.TYPE;
         } else if (isDoubleList(trimmed)) {
             return ListCell.getCollectionType(DoubleCell.TYPE);
 	} else if (isIntList(trimmed)) {
@@ -529,6 +1725,9 @@ public class MzTabReaderNodeModel extends NodeModel {
     // "entity"_abundance_"measure"_studyVariable[1-n]
     Pattern regAbundance = Pattern
             .compile("^(?!opt_).+.*_abundance.*$");
+    // "entity"_abundance_"measure"[1-n], the group is the name of the vector
+    Pattern regIndexedAbundance = Pattern
+            .compile("^((?!opt_).+_abundance.*)\\[\\d+\\]$");
     // num_* for number of peptides/psms/etc.
     Pattern regNumberOf = Pattern
             .compile("^num_.*$");
@@ -599,8 +1798,79 @@ public class MzTabReaderNodeModel extends NodeModel {
     			throw new InvalidSettingsException("Only mzTab files supported (with extension mzTab or tsv)"); 
     		}
     	}
-    	
-        return new DataTableSpec[] { createMetaDataSectionSpec(), null, null, null, null };
+
+        List<File> files = m_headerCache.getFiles();
+        boolean concatenated = files.size() > 1
+                || m_sourceColumn.getBooleanValue();
+        DataTableSpec[] specs = new DataTableSpec[getNrOutPorts()];
+        specs[0] = createMetaDataSectionSpec();
+        specs[DICTIONARY_PORT] = MzTabAccessionNormalizer
+                .createDictionarySpec();
+        specs[LINK_PORT] = MzTabAccessionNormalizer.createLinkSpec();
+        specs[ERROR_PORT] = MzTabQuarantine.createSpec();
+        if (concatenated) {
+            specs[0] = createConcatenatedSpec(new DataTableSpec[] { specs[0] });
+        }
+
+        boolean filesExist = !files.isEmpty();
+        for (File file : files) {
+            filesExist &= file.isFile();
+        }
+        if (filesExist) {
+            // derive the section specs from the headers of the last read files
+            try {
+                String[][] headerLines = m_headerCache.getHeaderLines();
+                int[] knownSections = m_headerCache.getKnownSections();
+                for (int i = 1; i < SECTIONS.length; ++i) {
+                    if (!isSectionKnown(headerLines, knownSections, i)) {
+                        // the header scan stopped before this section, its
+                        // spec is only known after the execution
+                        continue;
+                    }
+                    DataTableSpec[] fileSpecs = new DataTableSpec[files.size()];
+                    for (int f = 0; f < fileSpecs.length; ++f) {
+                        String headerLine = headerLines[f][i - 1];
+                        if (headerLine != null && isSectionSelected(SECTIONS[i])) {
+                            fileSpecs[f] = parseHeaderLine(headerLine,
+                                    SECTIONS[i]);
+                        } else {
+                            fileSpecs[f] = createEmptySpec();
+                        }
+                    }
+                    specs[i] = concatenated ? createConcatenatedSpec(fileSpecs)
+                            : fileSpecs[0];
+                    if (m_normalizeAccessions.getBooleanValue()
+                            && MzTabAccessionNormalizer
+                                    .isNormalized(SECTIONS[i])) {
+                        specs[i] = MzTabAccessionNormalizer
+                                .createNormalizedSpec(specs[i]);
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Could not read the section headers of " + files
+                        + ": " + e.getMessage());
+            }
+        }
+        return specs;
+    }
+
+    /**
+     * Returns whether the header scan of every file reached the given
+     * section, i.e., whether its header line is known or the file has no
+     * such section. Unselected sections are always known.
+     */
+    private boolean isSectionKnown(final String[][] headerLines,
+            final int[] knownSections, final int section) {
+        if (!isSectionSelected(SECTIONS[section])) {
+            return true;
+        }
+        for (int f = 0; f < headerLines.length; ++f) {
+            if (headerLines[f][section - 1] == null
+                    && section > knownSections[f]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -608,6 +1878,27 @@ public class MzTabReaderNodeModel extends NodeModel {
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
+        m_parserThreads.saveSettingsTo(settings);
+        m_memoryMapped.saveSettingsTo(settings);
+        m_sectionIndex.saveSettingsTo(settings);
+        m_fileThreads.saveSettingsTo(settings);
+        m_sourceColumn.saveSettingsTo(settings);
+        m_cellPoolSize.saveSettingsTo(settings);
+        m_vectorCells.saveSettingsTo(settings);
+        m_abundanceVectors.saveSettingsTo(settings);
+        m_normalizeAccessions.saveSettingsTo(settings);
+        m_quarantine.saveSettingsTo(settings);
+        m_errorBudget.saveSettingsTo(settings);
+        m_incremental.saveSettingsTo(settings);
+        for (SettingsModelBoolean readSection : m_readSection) {
+            readSection.saveSettingsTo(settings);
+        }
+        for (int i = 0; i < TABLE_SECTIONS.length; ++i) {
+            m_columnInclude[i].saveSettingsTo(settings);
+            m_columnExclude[i].saveSettingsTo(settings);
+            m_rowFilter[i].saveSettingsTo(settings);
+        }
     }
 
     /**
@@ -616,6 +1907,58 @@ public class MzTabReaderNodeModel extends NodeModel {
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
+        // workflows created before the setting existed keep the default
+        if (settings.containsKey(CFG_PARSER_THREADS)) {
+            m_parserThreads.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_MEMORY_MAPPED)) {
+            m_memoryMapped.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_SECTION_INDEX)) {
+            m_sectionIndex.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_FILE_THREADS)) {
+            m_fileThreads.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_SOURCE_COLUMN)) {
+            m_sourceColumn.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_CELL_POOL_SIZE)) {
+            m_cellPoolSize.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_VECTOR_CELLS)) {
+            m_vectorCells.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_ABUNDANCE_VECTORS)) {
+            m_abundanceVectors.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_NORMALIZE_ACCESSIONS)) {
+            m_normalizeAccessions.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_QUARANTINE)) {
+            m_quarantine.loadSettingsFrom(settings);
+            m_errorBudget.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_INCREMENTAL)) {
+            m_incremental.loadSettingsFrom(settings);
+        }
+        // rows read with other settings are not continued
+        m_tailState.clear();
+        for (int i = 0; i < SECTIONS.length; ++i) {
+            if (settings.containsKey(CFG_READ_SECTION + SECTIONS[i])) {
+                m_readSection[i].loadSettingsFrom(settings);
+            }
+        }
+        for (int i = 0; i < TABLE_SECTIONS.length; ++i) {
+            if (settings.containsKey(CFG_COLUMN_INCLUDE + TABLE_SECTIONS[i])) {
+                m_columnInclude[i].loadSettingsFrom(settings);
+                m_columnExclude[i].loadSettingsFrom(settings);
+            }
+            if (settings.containsKey(CFG_ROW_FILTER + TABLE_SECTIONS[i])) {
+                m_rowFilter[i].loadSettingsFrom(settings);
+            }
+        }
     }
 
     /**
@@ -624,6 +1967,79 @@ public class MzTabReaderNodeModel extends NodeModel {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+        if (settings.containsKey(CFG_PARSER_THREADS)) {
+            m_parserThreads.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_MEMORY_MAPPED)) {
+            m_memoryMapped.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_SECTION_INDEX)) {
+            m_sectionIndex.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_FILE_THREADS)) {
+            m_fileThreads.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_SOURCE_COLUMN)) {
+            m_sourceColumn.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_CELL_POOL_SIZE)) {
+            m_cellPoolSize.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_VECTOR_CELLS)) {
+            m_vectorCells.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_ABUNDANCE_VECTORS)) {
+            m_abundanceVectors.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_NORMALIZE_ACCESSIONS)) {
+            m_normalizeAccessions.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_QUARANTINE)) {
+            m_quarantine.validateSettings(settings);
+            m_errorBudget.validateSettings(settings);
+        }
+        if (settings.containsKey(CFG_INCREMENTAL)) {
+            m_incremental.validateSettings(settings);
+        }
+        for (int i = 0; i < SECTIONS.length; ++i) {
+            if (settings.containsKey(CFG_READ_SECTION + SECTIONS[i])) {
+                m_readSection[i].validateSettings(settings);
+            }
+        }
+        for (int i = 0; i < TABLE_SECTIONS.length; ++i) {
+            if (settings.containsKey(CFG_COLUMN_INCLUDE + TABLE_SECTIONS[i])) {
+                m_columnInclude[i].validateSettings(settings);
+                m_columnExclude[i].validateSettings(settings);
+                validatePattern(settings.getString(CFG_COLUMN_INCLUDE
+                        + TABLE_SECTIONS[i]));
+                validatePattern(settings.getString(CFG_COLUMN_EXCLUDE
+                        + TABLE_SECTIONS[i]));
+            }
+            if (settings.containsKey(CFG_ROW_FILTER + TABLE_SECTIONS[i])) {
+                m_rowFilter[i].validateSettings(settings);
+                MzTabRowFilter.parse(settings.getString(CFG_ROW_FILTER
+                        + TABLE_SECTIONS[i]));
+            }
+        }
+    }
+
+    private static void validatePattern(final String regex)
+            throws InvalidSettingsException {
+        try {
+            Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new InvalidSettingsException("Invalid column filter \""
+                    + regex + "\": " + e.getDescription());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
     }
 
     /**
@@ -633,6 +2049,24 @@ public class MzTabReaderNodeModel extends NodeModel {
     protected void loadInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
+        File internalsFile = new File(internDir, INTERNALS_FILE);
+        if (!internalsFile.isFile()) {
+            return;
+        }
+        InputStream in = new FileInputStream(internalsFile);
+        try {
+            NodeSettingsRO internals = NodeSettings.loadFromXML(in);
+            m_headerCache.loadFrom(internals);
+            if (internals.containsKey(CFG_TAIL_STATE)) {
+                m_tailState.loadFrom(internals
+                        .getNodeSettings(CFG_TAIL_STATE));
+            }
+        } catch (InvalidSettingsException e) {
+            throw new IOException(e.getMessage());
+        } finally {
+            in.close();
+        }
     }
 
     /**
@@ -642,6 +2076,17 @@ public class MzTabReaderNodeModel extends NodeModel {
     protected void saveInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        NodeSettings internals = new NodeSettings("internals");
+        m_headerCache.saveTo(internals);
+        m_tailState.saveTo(internals.addNodeSettings(CFG_TAIL_STATE));
+        m_resultCache.saveInternals(internDir);
+        OutputStream out = new FileOutputStream(new File(internDir,
+                INTERNALS_FILE));
+        try {
+            internals.saveToXML(out);
+        } finally {
+            out.close();
+        }
     }
 
 }
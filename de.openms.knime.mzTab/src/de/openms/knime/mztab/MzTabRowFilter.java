@@ -0,0 +1,386 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.knime.core.node.InvalidSettingsException;
+
+import de.openms.knime.parsing.NumberParser;
+
+/**
+ * A conjunction of conditions on the raw values of a section row. Rows are
+ * filtered before their values are converted into cells, so rejected rows
+ * cost no more than splitting the line.
+ * <p>
+ * A filter consists of conditions joined by <code>&amp;&amp;</code>. A
+ * condition compares a column with a value (<code>charge &gt;= 2</code>,
+ * <code>opt_global_cv_MS:1002217_decoy_peptide == 0</code>) using one of
+ * <code>== != &lt; &lt;= &gt; &gt;=</code>, or tests if a column has one of a
+ * set of values (<code>charge in {2,3}</code>). Values that are numbers are
+ * compared numerically, other values are compared as text and only support
+ * equality. Missing values (null, "-") never satisfy a condition.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabRowFilter {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Pattern COMPARISON = Pattern
+            .compile("^\\s*(\\S+?)\\s*(==|!=|<=|>=|<|>)\\s*(.*?)\\s*$");
+
+    private static final Pattern IN_SET = Pattern
+            .compile("^\\s*(\\S+)\\s+in\\s*\\{(.*)\\}\\s*$");
+
+    private final Condition[] m_conditions;
+
+    private MzTabRowFilter(final Condition[] conditions) {
+        m_conditions = conditions;
+    }
+
+    /**
+     * Parses a filter expression.
+     * 
+     * @param expression
+     *            The expression.
+     * @return The filter or null if the expression is empty.
+     * @throws InvalidSettingsException
+     *             If the expression is invalid.
+     */
+    static MzTabRowFilter parse(final String expression)
+            throws InvalidSettingsException {
+        if (expression.trim().length() == 0) {
+            return null;
+        }
+        List<Condition> conditions = new ArrayList<Condition>();
+        for (String clause : expression.split("&&")) {
+            conditions.add(parseCondition(clause));
+        }
+        return new MzTabRowFilter(conditions.toArray(new Condition[conditions
+                .size()]));
+    }
+
+    private static Condition parseCondition(final String clause)
+            throws InvalidSettingsException {
+        Matcher m = IN_SET.matcher(clause);
+        if (m.matches()) {
+            String[] values = m.group(2).split(",");
+            Value[] set = new Value[values.length];
+            for (int i = 0; i < values.length; ++i) {
+                set[i] = new Value(values[i]);
+            }
+            return new Condition(m.group(1), Operator.IN, set);
+        }
+        m = COMPARISON.matcher(clause);
+        if (m.matches() && m.group(3).length() > 0) {
+            Operator op = Operator.fromSymbol(m.group(2));
+            Value value = new Value(m.group(3));
+            if (!value.isNumeric() && op != Operator.EQ && op != Operator.NE) {
+                throw new InvalidSettingsException("Only == and != can be "
+                        + "used with the non-numeric value in \""
+                        + clause.trim() + "\".");
+            }
+            return new Condition(m.group(1), op, new Value[] { value });
+        }
+        throw new InvalidSettingsException("Invalid row filter condition \""
+                + clause.trim() + "\".");
+    }
+
+    /**
+     * Resolves the column names of the conditions.
+     * 
+     * @param headerEntries
+     *            The tab separated entries of the section header including
+     *            the prefix.
+     * @return A filter for the rows of the section.
+     * @throws InvalidSettingsException
+     *             If a column does not exist in the header.
+     */
+    MzTabRowFilter bind(final String[] headerEntries)
+            throws InvalidSettingsException {
+        Condition[] bound = new Condition[m_conditions.length];
+        for (int i = 0; i < bound.length; ++i) {
+            Condition c = m_conditions[i];
+            int entry = -1;
+            for (int j = 1; j < headerEntries.length && entry < 0; ++j) {
+                if (headerEntries[j].equals(c.m_column)) {
+                    entry = j;
+                }
+            }
+            if (entry < 0) {
+                throw new InvalidSettingsException("The row filter column \""
+                        + c.m_column + "\" does not exist in the "
+                        + headerEntries[0] + " header.");
+            }
+            bound[i] = new Condition(c.m_column, c.m_operator, c.m_values);
+            bound[i].m_entry = entry;
+        }
+        return new MzTabRowFilter(bound);
+    }
+
+    /**
+     * @param lineEntries
+     *            The tab separated entries of a row including the prefix.
+     * @return true if the row satisfies all conditions.
+     */
+    boolean accept(final String[] lineEntries) {
+        for (Condition c : m_conditions) {
+            if (!c.accept(lineEntries[c.m_entry])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param line
+     *            A tokenized row.
+     * @return true if the row satisfies all conditions.
+     */
+    boolean accept(final MzTabByteLine line) {
+        for (Condition c : m_conditions) {
+            if (!c.accept(line, line.getFieldStart(c.m_entry),
+                    line.getFieldEnd(c.m_entry))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private enum Operator {
+        EQ("=="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">="), IN("in");
+
+        private final String m_symbol;
+
+        private Operator(final String symbol) {
+            m_symbol = symbol;
+        }
+
+        static Operator fromSymbol(final String symbol) {
+            for (Operator op : values()) {
+                if (op.m_symbol.equals(symbol)) {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException(symbol);
+        }
+
+        /**
+         * @param cmp
+         *            The result of comparing the row value with the
+         *            condition value.
+         */
+        boolean test(final int cmp) {
+            switch (this) {
+            case NE:
+                return cmp != 0;
+            case LT:
+                return cmp < 0;
+            case LE:
+                return cmp <= 0;
+            case GT:
+                return cmp > 0;
+            case GE:
+                return cmp >= 0;
+            default:
+                return cmp == 0;
+            }
+        }
+    }
+
+    /**
+     * A value of a condition, either a number or a text.
+     */
+    private static final class Value {
+
+        private final String m_text;
+
+        private final byte[] m_bytes;
+
+        private final boolean m_numeric;
+
+        private final double m_number;
+
+        Value(final String literal) {
+            String text = literal.trim();
+            if (text.length() >= 2
+                    && (text.startsWith("\"") && text.endsWith("\"") || text
+                            .startsWith("'") && text.endsWith("'"))) {
+                // quoted values are always compared as text
+                m_text = text.substring(1, text.length() - 1);
+                m_numeric = false;
+                m_number = Double.NaN;
+            } else {
+                m_text = text;
+                double number = Double.NaN;
+                try {
+                    number = Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    // compared as text
+                }
+                m_numeric = !Double.isNaN(number);
+                m_number = number;
+            }
+            m_bytes = m_text.getBytes(UTF8);
+        }
+
+        boolean isNumeric() {
+            return m_numeric;
+        }
+    }
+
+    /**
+     * A single condition on the value of one column.
+     */
+    private static final class Condition {
+
+        private final String m_column;
+
+        private final Operator m_operator;
+
+        private final Value[] m_values;
+
+        /**
+         * The index of the line entry holding the column value.
+         */
+        private int m_entry;
+
+        Condition(final String column, final Operator operator,
+                final Value[] values) {
+            m_column = column;
+            m_operator = operator;
+            m_values = values;
+        }
+
+        boolean accept(final String token) {
+            if (MzTabColumnDecoder.isMissing(token)) {
+                return false;
+            }
+            double number = Double.NaN;
+            boolean parsed = false;
+            for (Value value : m_values) {
+                int cmp;
+                if (value.m_numeric) {
+                    if (!parsed) {
+                        number = parseNumber(token);
+                        parsed = true;
+                    }
+                    if (Double.isNaN(number)) {
+                        return m_operator == Operator.NE;
+                    }
+                    cmp = compare(number, value.m_number);
+                } else {
+                    cmp = token.equals(value.m_text) ? 0 : 1;
+                }
+                if (matches(cmp)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean accept(final MzTabByteLine line, final int start,
+                final int end) {
+            if (MzTabColumnDecoder.isMissing(line, start, end)) {
+                return false;
+            }
+            double number = Double.NaN;
+            boolean parsed = false;
+            for (Value value : m_values) {
+                int cmp;
+                if (value.m_numeric) {
+                    if (!parsed) {
+                        number = parseNumber(line.getBytes(), start, end);
+                        parsed = true;
+                    }
+                    if (Double.isNaN(number)) {
+                        return m_operator == Operator.NE;
+                    }
+                    cmp = compare(number, value.m_number);
+                } else {
+                    cmp = equalBytes(line.getBytes(), start, end,
+                            value.m_bytes) ? 0 : 1;
+                }
+                if (matches(cmp)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * A set matches if any of its values is equal, all other operators
+         * have a single value.
+         */
+        private boolean matches(final int cmp) {
+            return m_operator == Operator.IN ? cmp == 0 : m_operator.test(cmp);
+        }
+
+        private static int compare(final double a, final double b) {
+            return a < b ? -1 : (a > b ? 1 : 0);
+        }
+
+        private static double parseNumber(final String token) {
+            try {
+                return NumberParser.parseDouble(token);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private static double parseNumber(final byte[] bytes, final int start,
+                final int end) {
+            try {
+                return NumberParser.parseDouble(bytes, start, end);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private static boolean equalBytes(final byte[] bytes, final int start,
+                final int end, final byte[] value) {
+            if (end - start != value.length) {
+                return false;
+            }
+            for (int i = 0; i < value.length; ++i) {
+                if (bytes[start + i] != value[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,556 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.streamable.RowOutput;
+
+import de.openms.knime.mztab.exceptions.InvalidMzTabFormatException;
+import de.openms.knime.mztab.exceptions.InvalidMzTabLineException;
+
+/**
+ * Parsing state of one of the tabular mzTab sections (PRT, PEP, PSM, SML). The
+ * section is started by its header line, which defines the table spec and the
+ * column decoders used for all following rows.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabSection {
+
+    /**
+     * The line prefix of the section rows, e.g. PSM.
+     */
+    private final String m_linePrefix;
+
+    /**
+     * The line prefix of the section header, e.g. PSH.
+     */
+    private final String m_headerPrefix;
+
+    /**
+     * The pool sharing the cells of repeating text values, may be null.
+     */
+    private final MzTabCellPool m_pool;
+
+    /**
+     * The metrics the rows and the cell construction time are added to.
+     */
+    private final MzTabParseMetrics.Section m_metrics;
+
+    /**
+     * The header line the section was started with.
+     */
+    private String m_headerLine;
+
+    private DataTableSpec m_spec;
+
+    private MzTabColumnDecoder[] m_decoders;
+
+    /**
+     * The indices of the tab separated line entries of each column, a single
+     * entry unless the column is an abundance vector. Entries of columns that
+     * are not read are skipped.
+     */
+    private int[][] m_fields;
+
+    /**
+     * The number of tab separated entries of a line, including the prefix.
+     */
+    private int m_numEntries;
+
+    /**
+     * Rows that do not pass the filter are skipped, null if all rows are
+     * read.
+     */
+    private MzTabRowFilter m_rowFilter;
+
+    private BufferedDataContainer m_container;
+
+    /**
+     * The output the rows are pushed to in streaming execution, null if the
+     * rows are collected in a table.
+     */
+    private RowOutput m_output;
+
+    /**
+     * Records malformed rows instead of failing, null if they fail the
+     * execution.
+     */
+    private MzTabQuarantine.Recorder m_quarantine;
+
+    /**
+     * Collects the accession links of the file if the accessions of the
+     * section are normalized, null otherwise.
+     */
+    private MzTabAccessionNormalizer.Links m_links;
+
+    /**
+     * Normalizes the accessions of the rows, created when the section is
+     * started. Null if the accessions are not normalized.
+     */
+    private MzTabAccessionNormalizer.Rows m_normalizer;
+
+    private int m_rowIdx;
+
+    /**
+     * The number of rows added by this execution.
+     */
+    private long m_numRows;
+
+    /**
+     * C'tor.
+     * 
+     * @param linePrefix
+     *            The line prefix of the section rows.
+     * @param headerPrefix
+     *            The line prefix of the section header.
+     * @param pool
+     *            The pool sharing the cells of repeating text values or null.
+     * @param metrics
+     *            The metrics of the execution.
+     */
+    MzTabSection(final String linePrefix, final String headerPrefix,
+            final MzTabCellPool pool, final MzTabParseMetrics metrics) {
+        m_linePrefix = linePrefix;
+        m_headerPrefix = headerPrefix;
+        m_pool = pool;
+        m_metrics = metrics.getSection(linePrefix);
+        m_rowIdx = 1;
+    }
+
+    /**
+     * @return The line prefix of the section rows.
+     */
+    String getLinePrefix() {
+        return m_linePrefix;
+    }
+
+    /**
+     * @return The line prefix of the section header.
+     */
+    String getHeaderPrefix() {
+        return m_headerPrefix;
+    }
+
+    /**
+     * @return The metrics of the section. Parsers calling
+     *         {@link #parseCells(MzTabByteLine)} directly add their cell
+     *         construction time.
+     */
+    MzTabParseMetrics.Section getMetrics() {
+        return m_metrics;
+    }
+
+    /**
+     * @return The spec of the section or null if the header was not seen yet.
+     */
+    DataTableSpec getSpec() {
+        return m_spec;
+    }
+
+    /**
+     * @return The header line the section was started with or null if the
+     *         header was not seen yet.
+     */
+    String getHeaderLine() {
+        return m_headerLine;
+    }
+
+    /**
+     * @return The index used in the row key of the next row.
+     */
+    int getNextRowIndex() {
+        return m_rowIdx;
+    }
+
+    /**
+     * Sets the index used in the row key of the next row, e.g., to continue
+     * the row keys of a previous execution.
+     * 
+     * @param rowIdx
+     *            The index of the next row.
+     */
+    void setNextRowIndex(final int rowIdx) {
+        m_rowIdx = rowIdx;
+    }
+
+    /**
+     * Pushes the rows of the section to the given output instead of
+     * collecting them in a table. Has to be called before the section is
+     * started.
+     * 
+     * @param output
+     *            The output of the section rows.
+     */
+    void setOutput(final RowOutput output) {
+        m_output = output;
+    }
+
+    /**
+     * Normalizes the accessions of the section rows while they are added.
+     * Has to be called before the section is started.
+     * 
+     * @param links
+     *            The collector of the accession links of the file.
+     */
+    void setAccessionLinks(final MzTabAccessionNormalizer.Links links) {
+        m_links = links;
+    }
+
+    /**
+     * Records malformed rows of the section instead of throwing an exception.
+     * 
+     * @param quarantine
+     *            The recorder of the malformed lines of the file.
+     */
+    void setQuarantine(final MzTabQuarantine.Recorder quarantine) {
+        m_quarantine = quarantine;
+    }
+
+    /**
+     * Starts the section after its header line was parsed.
+     * 
+     * @param headerLine
+     *            The header line of the section.
+     * @param spec
+     *            The spec of the columns that are read. If accessions are
+     *            normalized, the table gets the normalized spec.
+     * @param fields
+     *            The indices of the line entries of each column of the spec.
+     * @param numEntries
+     *            The number of line entries including the prefix.
+     * @param rowFilter
+     *            The filter for the rows of the section or null.
+     * @param exec
+     *            The execution context used to create the container.
+     */
+    void start(final String headerLine, final DataTableSpec spec,
+            final int[][] fields, final int numEntries,
+            final MzTabRowFilter rowFilter, final ExecutionContext exec) {
+        m_headerLine = headerLine;
+        m_spec = spec;
+        m_normalizer = null;
+        if (m_links != null) {
+            m_normalizer = m_links.createRows(m_linePrefix, spec);
+            m_spec = m_normalizer.getSpec();
+        }
+        m_decoders = MzTabColumnDecoder.createDecoders(spec, m_pool);
+        m_fields = fields;
+        m_numEntries = numEntries;
+        m_rowFilter = rowFilter;
+        if (m_output == null) {
+            m_container = exec.createDataContainer(m_spec);
+        }
+    }
+
+    /**
+     * Parses a single row of the section and adds it to the table.
+     * 
+     * @param line
+     *            The line to parse.
+     * @param lineNumber
+     *            The number of the line in the file or -1 if it is not known.
+     * @throws InvalidMzTabFormatException
+     *             If the header of the section was not seen yet.
+     * @throws InvalidMzTabLineException
+     *             If the line does not fit to the header.
+     * @throws InterruptedException
+     *             If pushing the row to the output was interrupted.
+     */
+    void parseLine(final String line, final long lineNumber)
+            throws InvalidMzTabFormatException, InvalidMzTabLineException,
+            InterruptedException {
+        final long start = System.nanoTime();
+        DataCell[] cells = parseCells(line, lineNumber);
+        m_metrics.addCellTime(System.nanoTime() - start);
+        if (cells != null) {
+            addRow(cells);
+        }
+    }
+
+    /**
+     * Parses a single row of the section without adding it to the table. This
+     * method does not modify the section and can be called concurrently once
+     * the section was started.
+     * 
+     * @param line
+     *            The line to parse.
+     * @return The cells of the row or null if the row does not pass the row
+     *         filter.
+     * @throws InvalidMzTabFormatException
+     *             If the header of the section was not seen yet.
+     * @throws InvalidMzTabLineException
+     *             If the line does not fit to the header.
+     */
+    DataCell[] parseCells(final String line)
+            throws InvalidMzTabFormatException, InvalidMzTabLineException {
+        // check if we already have seen the header
+        if (m_decoders == null) {
+            throw new InvalidMzTabFormatException("Found " + m_linePrefix
+                    + " before " + m_headerPrefix);
+        }
+
+        String[] lineEntries = line.split("\t");
+
+        // check if valid
+        if (lineEntries.length != m_numEntries) {
+            throw new InvalidMzTabLineException(line);
+        }
+
+        if (m_rowFilter != null && !m_rowFilter.accept(lineEntries)) {
+            return null;
+        }
+
+        return decode(lineEntries);
+    }
+
+    /**
+     * Parses a single row of the section and adds it to the table.
+     * 
+     * @param line
+     *            The line to parse.
+     * @param lineNumber
+     *            The number of the line in the file or -1 if it is not known.
+     * @throws InvalidMzTabFormatException
+     *             If the header of the section was not seen yet.
+     * @throws InvalidMzTabLineException
+     *             If the line does not fit to the header.
+     * @throws InterruptedException
+     *             If pushing the row to the output was interrupted.
+     */
+    void parseLine(final MzTabByteLine line, final long lineNumber)
+            throws InvalidMzTabFormatException, InvalidMzTabLineException,
+            InterruptedException {
+        final long start = System.nanoTime();
+        DataCell[] cells = parseCells(line, lineNumber);
+        m_metrics.addCellTime(System.nanoTime() - start);
+        if (cells != null) {
+            addRow(cells);
+        }
+    }
+
+    /**
+     * Parses a single row of the section from its bytes without adding it to
+     * the table. Numeric fields are parsed without creating Strings. This
+     * method does not modify the section and can be called concurrently for
+     * different lines once the section was started.
+     * 
+     * @param line
+     *            The line to parse.
+     * @return The cells of the row or null if the row does not pass the row
+     *         filter.
+     * @throws InvalidMzTabFormatException
+     *             If the header of the section was not seen yet.
+     * @throws InvalidMzTabLineException
+     *             If the line does not fit to the header.
+     */
+    DataCell[] parseCells(final MzTabByteLine line)
+            throws InvalidMzTabFormatException, InvalidMzTabLineException {
+        // check if we already have seen the header
+        if (m_decoders == null) {
+            throw new InvalidMzTabFormatException("Found " + m_linePrefix
+                    + " before " + m_headerPrefix);
+        }
+
+        final MzTabColumnDecoder[] decoders = m_decoders;
+        final int[][] fields = m_fields;
+
+        // check if valid
+        if (line.tokenize('\t') != m_numEntries) {
+            throw new InvalidMzTabLineException(line.toString());
+        }
+
+        if (m_rowFilter != null && !m_rowFilter.accept(line)) {
+            return null;
+        }
+
+        DataCell[] cells = new DataCell[decoders.length];
+        for (int i = 0; i < decoders.length; ++i) {
+            cells[i] = decoders[i].decode(line, fields[i]);
+        }
+        return cells;
+    }
+
+    /**
+     * Parses a single row like {@link #parseCells(String)}. If the section
+     * has a quarantine, a malformed row is recorded and skipped.
+     * 
+     * @param line
+     *            The line to parse.
+     * @param lineNumber
+     *            The number of the line in the file or -1 if it is not known.
+     * @return The cells of the row or null if the row does not pass the row
+     *         filter or was quarantined.
+     * @throws InvalidMzTabFormatException
+     *             If the header of the section was not seen yet or the error
+     *             budget of the quarantine is exhausted.
+     * @throws InvalidMzTabLineException
+     *             If the line does not fit to the header.
+     */
+    DataCell[] parseCells(final String line, final long lineNumber)
+            throws InvalidMzTabFormatException, InvalidMzTabLineException {
+        try {
+            return parseCells(line);
+        } catch (InvalidMzTabFormatException e) {
+            quarantine(lineNumber, -1, e.getMessage(), line, e);
+        } catch (InvalidMzTabLineException e) {
+            quarantine(lineNumber, -1, getEntryCountReason(), line, e);
+        } catch (NumberFormatException e) {
+            quarantine(lineNumber, -1, "Invalid number: " + e.getMessage(),
+                    line, e);
+        }
+        return null;
+    }
+
+    /**
+     * Parses a single row like {@link #parseCells(MzTabByteLine)}. If the
+     * section has a quarantine, a malformed row is recorded and skipped.
+     * 
+     * @param line
+     *            The line to parse.
+     * @param lineNumber
+     *            The number of the line in the file or -1 if it is not known.
+     * @return The cells of the row or null if the row does not pass the row
+     *         filter or was quarantined.
+     * @throws InvalidMzTabFormatException
+     *             If the header of the section was not seen yet or the error
+     *             budget of the quarantine is exhausted.
+     * @throws InvalidMzTabLineException
+     *             If the line does not fit to the header.
+     */
+    DataCell[] parseCells(final MzTabByteLine line, final long lineNumber)
+            throws InvalidMzTabFormatException, InvalidMzTabLineException {
+        try {
+            return parseCells(line);
+        } catch (InvalidMzTabFormatException e) {
+            quarantine(lineNumber, line.getFileOffset(), e.getMessage(),
+                    line.toString(), e);
+        } catch (InvalidMzTabLineException e) {
+            quarantine(lineNumber, line.getFileOffset(),
+                    getEntryCountReason(), line.toString(), e);
+        } catch (NumberFormatException e) {
+            quarantine(lineNumber, line.getFileOffset(), "Invalid number: "
+                    + e.getMessage(), line.toString(), e);
+        }
+        return null;
+    }
+
+    private String getEntryCountReason() {
+        return "Number of entries does not match the " + m_headerPrefix
+                + " header (" + m_numEntries + " entries)";
+    }
+
+    /**
+     * Records the line if the section has a quarantine, otherwise rethrows
+     * the error.
+     */
+    private <E extends Exception> void quarantine(final long lineNumber,
+            final long offset, final String reason, final String line,
+            final E e) throws E, InvalidMzTabFormatException {
+        if (m_quarantine == null) {
+            throw e;
+        }
+        m_quarantine.add(lineNumber, offset, m_linePrefix, reason, line);
+    }
+
+    /**
+     * Converts the entries of the read columns of a row into cells.
+     * 
+     * @param lineEntries
+     *            The tab separated entries of the line including the prefix.
+     * @return The cells of the row.
+     */
+    DataCell[] decode(final String[] lineEntries) {
+        final MzTabColumnDecoder[] decoders = m_decoders;
+        final int[][] fields = m_fields;
+        DataCell[] cells = new DataCell[decoders.length];
+        for (int i = 0; i < decoders.length; ++i) {
+            cells[i] = decoders[i].decode(lineEntries, fields[i]);
+        }
+        return cells;
+    }
+
+    /**
+     * Adds a parsed row to the table of the section. Rows have to be added
+     * in the order they appear in the file. If accessions are normalized, the
+     * row is normalized here, so its accession links follow the file order.
+     * 
+     * @param cells
+     *            The cells of the row as parsed.
+     * @throws InterruptedException
+     *             If pushing the row to the output was interrupted.
+     */
+    void addRow(final DataCell[] cells) throws InterruptedException {
+        int rowIdx = m_rowIdx++;
+        RowKey key = new RowKey("Row " + rowIdx);
+        DataRow row = new DefaultRow(key, m_normalizer == null ? cells
+                : m_normalizer.normalize(rowIdx, cells));
+        ++m_numRows;
+        if (m_output != null) {
+            m_output.push(row);
+        } else {
+            m_container.addRowToTable(row);
+        }
+    }
+
+    /**
+     * Closes the section and returns the parsed table. If no header was found
+     * for this section an empty table is returned.
+     * 
+     * @param exec
+     *            The execution context used to create an empty table.
+     * @return The parsed table or null if the rows were pushed to an output.
+     * @throws InterruptedException
+     *             If closing the output was interrupted.
+     */
+    BufferedDataTable close(final ExecutionContext exec)
+            throws InterruptedException {
+        m_metrics.addRows(m_numRows);
+        if (m_output != null) {
+            m_output.close();
+            return null;
+        }
+        if (m_container == null) {
+            m_spec = new DataTableSpec(new DataColumnSpec[0]);
+            m_container = exec.createDataContainer(m_spec);
+        }
+        m_container.close();
+        return m_container.getTable();
+    }
+}
@@ -0,0 +1,411 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Byte offsets of the sections of an mzTab file. For each section the offset of
+ * its header (or first MTD line), the offset behind its last line, the number
+ * of rows and the offset of every {@link #CHECKPOINT_INTERVAL}th row are
+ * recorded. The index is stored in a sidecar file next to the mzTab file and
+ * is only valid as long as path, size and modification time of the mzTab file
+ * do not change.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabSectionIndex {
+
+    /**
+     * Number of rows between two recorded row offsets.
+     */
+    static final int CHECKPOINT_INTERVAL = 1024;
+
+    /**
+     * Suffix appended to the mzTab file name to get the index file.
+     */
+    static final String FILE_SUFFIX = ".index";
+
+    private static final int MAGIC = 0x4D5A5449;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Line prefixes of the indexed sections and their headers. MTD has no
+     * header.
+     */
+    private static final String[][] PREFIXES = { { "MTD", null },
+            { "PRT", "PRH" }, { "PEP", "PEH" }, { "PSM", "PSH" },
+            { "SML", "SMH" } };
+
+    private final String m_path;
+
+    private final long m_size;
+
+    private final long m_lastModified;
+
+    /**
+     * The sections in file order.
+     */
+    private final List<Section> m_sections;
+
+    private MzTabSectionIndex(final String path, final long size,
+            final long lastModified, final List<Section> sections) {
+        m_path = path;
+        m_size = size;
+        m_lastModified = lastModified;
+        m_sections = Collections.unmodifiableList(sections);
+    }
+
+    /**
+     * @return The sections in file order.
+     */
+    List<Section> getSections() {
+        return m_sections;
+    }
+
+    /**
+     * @param mzTabFile
+     *            The mzTab file.
+     * @return The sidecar file holding the index of the given file.
+     */
+    static File getIndexFile(final File mzTabFile) {
+        return new File(mzTabFile.getPath() + FILE_SUFFIX);
+    }
+
+    /**
+     * Loads the index of the given file.
+     * 
+     * @param mzTabFile
+     *            The mzTab file.
+     * @return The index or null if there is no index file or it does not
+     *         match the current state of the mzTab file.
+     */
+    static MzTabSectionIndex load(final File mzTabFile) {
+        File indexFile = getIndexFile(mzTabFile);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(indexFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            String path = in.readUTF();
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            if (!path.equals(mzTabFile.getAbsolutePath())
+                    || size != mzTabFile.length()
+                    || lastModified != mzTabFile.lastModified()) {
+                return null;
+            }
+            int numSections = in.readInt();
+            List<Section> sections = new ArrayList<Section>(numSections);
+            for (int i = 0; i < numSections; ++i) {
+                Section section = new Section(in.readUTF(), in.readLong());
+                section.m_end = in.readLong();
+                section.m_rowCount = in.readInt();
+                section.m_numCheckpoints = in.readInt();
+                section.m_checkpoints = new long[section.m_numCheckpoints];
+                for (int j = 0; j < section.m_numCheckpoints; ++j) {
+                    section.m_checkpoints[j] = in.readLong();
+                }
+                sections.add(section);
+            }
+            return new MzTabSectionIndex(path, size, lastModified, sections);
+        } catch (IOException e) {
+            // a truncated or otherwise unreadable index is rebuilt
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the index to the sidecar file of the mzTab file. The index is
+     * written to a temporary file first, so concurrent readers never see a
+     * partially written index.
+     * 
+     * @throws IOException
+     *             If the index file cannot be written.
+     */
+    void save() throws IOException {
+        File indexFile = getIndexFile(new File(m_path));
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmpFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(m_path);
+            out.writeLong(m_size);
+            out.writeLong(m_lastModified);
+            out.writeInt(m_sections.size());
+            for (Section section : m_sections) {
+                out.writeUTF(section.m_linePrefix);
+                out.writeLong(section.m_start);
+                out.writeLong(section.m_end);
+                out.writeInt(section.m_rowCount);
+                out.writeInt(section.m_numCheckpoints);
+                for (int j = 0; j < section.m_numCheckpoints; ++j) {
+                    out.writeLong(section.m_checkpoints[j]);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (indexFile.exists() && !indexFile.delete()) {
+            tmpFile.delete();
+            throw new IOException("Cannot replace " + indexFile);
+        }
+        if (!tmpFile.renameTo(indexFile)) {
+            tmpFile.delete();
+            throw new IOException("Cannot create " + indexFile);
+        }
+    }
+
+    /**
+     * A contiguous section of the file.
+     */
+    static final class Section {
+
+        /**
+         * The line prefix of the section rows, e.g. PSM.
+         */
+        private final String m_linePrefix;
+
+        private final long m_start;
+
+        private long m_end;
+
+        private int m_rowCount;
+
+        private long[] m_checkpoints = new long[16];
+
+        private int m_numCheckpoints;
+
+        private Section(final String linePrefix, final long start) {
+            m_linePrefix = linePrefix;
+            m_start = start;
+        }
+
+        /**
+         * @return The line prefix of the section rows.
+         */
+        String getLinePrefix() {
+            return m_linePrefix;
+        }
+
+        /**
+         * @return The file offset of the section header or, for MTD, of the
+         *         first line.
+         */
+        long getStart() {
+            return m_start;
+        }
+
+        /**
+         * @return The file offset behind the last line of the section.
+         */
+        long getEnd() {
+            return m_end;
+        }
+
+        /**
+         * @return The number of rows of the section.
+         */
+        int getRowCount() {
+            return m_rowCount;
+        }
+
+        /**
+         * @return The number of ranges the rows are split into, each holding
+         *         {@link #CHECKPOINT_INTERVAL} rows except the last one.
+         */
+        int getNumRanges() {
+            return m_numCheckpoints;
+        }
+
+        /**
+         * @param range
+         *            The index of the range.
+         * @return The file offset of the first row of the range.
+         */
+        long getRangeStart(final int range) {
+            return m_checkpoints[range];
+        }
+
+        /**
+         * @param range
+         *            The index of the range.
+         * @return The file offset behind the last row of the range.
+         */
+        long getRangeEnd(final int range) {
+            return range + 1 < m_numCheckpoints ? m_checkpoints[range + 1]
+                    : m_end;
+        }
+
+        /**
+         * @param range
+         *            The index of the range.
+         * @return The number of rows in the range.
+         */
+        int getRangeRowCount(final int range) {
+            return Math.min(CHECKPOINT_INTERVAL, m_rowCount - range
+                    * CHECKPOINT_INTERVAL);
+        }
+
+        private void addRow(final long offset) {
+            if (m_rowCount % CHECKPOINT_INTERVAL == 0) {
+                if (m_numCheckpoints == m_checkpoints.length) {
+                    m_checkpoints = Arrays.copyOf(m_checkpoints,
+                            2 * m_numCheckpoints);
+                }
+                m_checkpoints[m_numCheckpoints++] = offset;
+            }
+            ++m_rowCount;
+        }
+    }
+
+    /**
+     * Collects the section offsets while the file is read from start to end.
+     */
+    static final class Builder {
+
+        private final File m_file;
+
+        private final long m_size;
+
+        private final long m_lastModified;
+
+        private final List<Section> m_sections = new ArrayList<Section>();
+
+        private Section m_current;
+
+        /**
+         * False if a section is interrupted by another one, a header is
+         * repeated or rows precede their header. Such files cannot be read
+         * section by section.
+         */
+        private boolean m_contiguous = true;
+
+        /**
+         * C'tor. Size and modification time are taken before reading, so an
+         * index of a file that changes while it is read is never used.
+         * 
+         * @param file
+         *            The mzTab file.
+         */
+        Builder(final File file) {
+            m_file = file.getAbsoluteFile();
+            m_size = file.length();
+            m_lastModified = file.lastModified();
+        }
+
+        /**
+         * Records a line of the file.
+         * 
+         * @param line
+         *            The line.
+         * @param offset
+         *            The offset of the line identifier within the line.
+         * @param start
+         *            The file offset of the line.
+         * @param end
+         *            The file offset behind the line including its terminator.
+         */
+        void addLine(final MzTabByteLine line, final int offset,
+                final long start, final long end) {
+            for (String[] prefixes : PREFIXES) {
+                if (line.regionMatches(offset, prefixes[0])) {
+                    if (m_current == null
+                            || !m_current.m_linePrefix.equals(prefixes[0])) {
+                        if (prefixes[1] != null) {
+                            // rows without a preceding header
+                            m_contiguous = false;
+                            return;
+                        }
+                        startSection(prefixes[0], start);
+                    }
+                    m_current.addRow(start);
+                    m_current.m_end = end;
+                    return;
+                } else if (prefixes[1] != null
+                        && line.regionMatches(offset, prefixes[1])) {
+                    startSection(prefixes[0], start);
+                    m_current.m_end = end;
+                    return;
+                }
+            }
+        }
+
+        private void startSection(final String linePrefix, final long start) {
+            for (Section section : m_sections) {
+                if (section.m_linePrefix.equals(linePrefix)) {
+                    m_contiguous = false;
+                }
+            }
+            m_current = new Section(linePrefix, start);
+            m_sections.add(m_current);
+        }
+
+        /**
+         * @return The index or null if the sections of the file are not
+         *         contiguous.
+         */
+        MzTabSectionIndex build() {
+            if (!m_contiguous) {
+                return null;
+            }
+            return new MzTabSectionIndex(m_file.getPath(), m_size,
+                    m_lastModified, m_sections);
+        }
+    }
+}
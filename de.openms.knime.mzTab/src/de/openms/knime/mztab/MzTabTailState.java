@@ -0,0 +1,337 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.mztab;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+
+/**
+ * Remembers how far growing mzTab files were read by the last execution, so
+ * that the next execution only reads the lines appended since then. For each
+ * file the offset behind the last complete line, the current header line and
+ * the next row index of each tabular section are kept. Checksums of the first
+ * and the last bytes before the offset make sure that only appended files are
+ * continued, a file that was rewritten in the meantime is read again from the
+ * start.
+ * 
+ * Updates of an execution only take effect once it is committed, so a failed
+ * or canceled execution reads the same lines again. Access is synchronized,
+ * the files of an execution may be read concurrently.
+ * 
+ * @author The OpenMS Team
+ */
+final class MzTabTailState {
+
+    private static final String CFG_FILES = "files";
+
+    private static final String CFG_FILE_ENTRY = "file_";
+
+    private static final String CFG_OFFSET = "offset";
+
+    private static final String CFG_HEAD_CHECKSUM = "head_checksum";
+
+    private static final String CFG_TAIL_CHECKSUM = "tail_checksum";
+
+    private static final String CFG_HEADER_LINES = "header_lines";
+
+    private static final String CFG_ROW_INDICES = "row_indices";
+
+    /**
+     * Number of bytes at the start of a file covered by the head checksum.
+     */
+    static final int HEAD_LENGTH = 64 * 1024;
+
+    /**
+     * Number of bytes before the offset covered by the tail checksum.
+     */
+    static final int TAIL_LENGTH = 4 * 1024;
+
+    private final Map<File, Entry> m_entries = new LinkedHashMap<File, Entry>();
+
+    /**
+     * The updates of the current execution.
+     */
+    private final Map<File, Entry> m_updates = new LinkedHashMap<File, Entry>();
+
+    /**
+     * @param file
+     *            The mzTab file.
+     * @return The state of the given file or null if it was not read before.
+     */
+    synchronized Entry get(final File file) {
+        return m_entries.get(file);
+    }
+
+    /**
+     * Replaces the state of the given file once the current execution is
+     * committed.
+     * 
+     * @param file
+     *            The mzTab file.
+     * @param entry
+     *            The state after the current execution.
+     */
+    synchronized void update(final File file, final Entry entry) {
+        m_updates.put(file, entry);
+    }
+
+    /**
+     * Applies the updates of the current execution.
+     */
+    synchronized void commit() {
+        m_entries.putAll(m_updates);
+        m_updates.clear();
+    }
+
+    /**
+     * Discards the updates of the current execution.
+     */
+    synchronized void rollback() {
+        m_updates.clear();
+    }
+
+    /**
+     * Forgets the state of all files, the next execution reads them from the
+     * start.
+     */
+    synchronized void clear() {
+        m_entries.clear();
+        m_updates.clear();
+    }
+
+    /**
+     * Finds the end of the last complete line. A line that is still being
+     * written, i.e., not terminated yet, is left for the next execution.
+     * 
+     * @param file
+     *            The mzTab file.
+     * @return The offset behind the last line terminator, 0 if there is none.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    static long findEndOfLastLine(final File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] buffer = new byte[TAIL_LENGTH];
+            long end = in.length();
+            while (end > 0) {
+                int length = (int) Math.min(buffer.length, end);
+                in.seek(end - length);
+                in.readFully(buffer, 0, length);
+                for (int i = length - 1; i >= 0; --i) {
+                    if (buffer[i] == '\n') {
+                        return end - length + i + 1;
+                    }
+                }
+                end -= length;
+            }
+            return 0;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Saves the state.
+     * 
+     * @param settings
+     *            The settings to write to.
+     */
+    synchronized void saveTo(final NodeSettingsWO settings) {
+        String[] files = new String[m_entries.size()];
+        int i = 0;
+        for (Map.Entry<File, Entry> e : m_entries.entrySet()) {
+            files[i] = e.getKey().getAbsolutePath();
+            Entry entry = e.getValue();
+            NodeSettingsWO entrySettings = settings
+                    .addNodeSettings(CFG_FILE_ENTRY + i);
+            entrySettings.addLong(CFG_OFFSET, entry.m_offset);
+            entrySettings.addLong(CFG_HEAD_CHECKSUM, entry.m_headChecksum);
+            entrySettings.addLong(CFG_TAIL_CHECKSUM, entry.m_tailChecksum);
+            entrySettings.addStringArray(CFG_HEADER_LINES, entry.m_headerLines);
+            entrySettings.addIntArray(CFG_ROW_INDICES, entry.m_rowIndices);
+            ++i;
+        }
+        settings.addStringArray(CFG_FILES, files);
+    }
+
+    /**
+     * Restores a state saved by {@link #saveTo(NodeSettingsWO)}.
+     * 
+     * @param settings
+     *            The settings to read from.
+     * @throws InvalidSettingsException
+     *             If the settings are incomplete.
+     */
+    synchronized void loadFrom(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_entries.clear();
+        if (!settings.containsKey(CFG_FILES)) {
+            return;
+        }
+        String[] files = settings.getStringArray(CFG_FILES);
+        for (int i = 0; i < files.length; ++i) {
+            NodeSettingsRO entrySettings = settings
+                    .getNodeSettings(CFG_FILE_ENTRY + i);
+            m_entries.put(new File(files[i]), new Entry(
+                    entrySettings.getLong(CFG_OFFSET),
+                    entrySettings.getLong(CFG_HEAD_CHECKSUM),
+                    entrySettings.getLong(CFG_TAIL_CHECKSUM),
+                    entrySettings.getStringArray(CFG_HEADER_LINES),
+                    entrySettings.getIntArray(CFG_ROW_INDICES)));
+        }
+    }
+
+    /**
+     * The state of a single file after an execution.
+     */
+    static final class Entry {
+
+        private final long m_offset;
+
+        private final long m_headChecksum;
+
+        private final long m_tailChecksum;
+
+        private final String[] m_headerLines;
+
+        private final int[] m_rowIndices;
+
+        private Entry(final long offset, final long headChecksum,
+                final long tailChecksum, final String[] headerLines,
+                final int[] rowIndices) {
+            m_offset = offset;
+            m_headChecksum = headChecksum;
+            m_tailChecksum = tailChecksum;
+            m_headerLines = headerLines;
+            m_rowIndices = rowIndices;
+        }
+
+        /**
+         * Creates the state of a file that was read up to the given offset.
+         * 
+         * @param file
+         *            The mzTab file.
+         * @param offset
+         *            The offset behind the last line that was read.
+         * @param headerLines
+         *            The current header line of each section in the order of
+         *            {@link MzTabHeaderCache#HEADER_PREFIXES}, null for
+         *            sections that were not started.
+         * @param rowIndices
+         *            The next row index of each section in the same order.
+         * @return The state.
+         * @throws IOException
+         *             If the file cannot be read.
+         */
+        static Entry create(final File file, final long offset,
+                final String[] headerLines, final int[] rowIndices)
+                throws IOException {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                return new Entry(offset, checksum(in, 0,
+                        Math.min(offset, HEAD_LENGTH)), checksum(in,
+                        Math.max(0, offset - TAIL_LENGTH), offset),
+                        headerLines, rowIndices);
+            } finally {
+                in.close();
+            }
+        }
+
+        /**
+         * Checks if the given file still starts with the bytes that were read,
+         * i.e., if it was only appended to since.
+         * 
+         * @param file
+         *            The mzTab file.
+         * @return true if reading can continue at {@link #getOffset()}.
+         * @throws IOException
+         *             If the file cannot be read.
+         */
+        boolean isPrefixOf(final File file) throws IOException {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                return in.length() >= m_offset
+                        && checksum(in, 0, Math.min(m_offset, HEAD_LENGTH)) == m_headChecksum
+                        && checksum(in, Math.max(0, m_offset - TAIL_LENGTH),
+                                m_offset) == m_tailChecksum;
+            } finally {
+                in.close();
+            }
+        }
+
+        /**
+         * @return The offset behind the last line that was read.
+         */
+        long getOffset() {
+            return m_offset;
+        }
+
+        /**
+         * @param section
+         *            The index of the section in
+         *            {@link MzTabHeaderCache#HEADER_PREFIXES}.
+         * @return The current header line of the section or null if it was
+         *         not started.
+         */
+        String getHeaderLine(final int section) {
+            return m_headerLines[section];
+        }
+
+        /**
+         * @param section
+         *            The index of the section in
+         *            {@link MzTabHeaderCache#HEADER_PREFIXES}.
+         * @return The index used in the row key of the next row.
+         */
+        int getRowIndex(final int section) {
+            return m_rowIndices[section];
+        }
+
+        private static long checksum(final RandomAccessFile in,
+                final long start, final long end) throws IOException {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[(int) (end - start)];
+            in.seek(start);
+            in.readFully(buffer);
+            crc.update(buffer);
+            return crc.getValue();
+        }
+    }
+}
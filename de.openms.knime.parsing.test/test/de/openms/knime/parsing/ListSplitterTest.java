@@ -0,0 +1,134 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.parsing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link ListSplitter} gives the same elements as
+ * {@link String#split(String)} and, in bracket aware mode, as the
+ * <code>,(?![^\[\]]*+\])</code> pattern, on edge cases and randomly generated
+ * input.
+ * 
+ * @author The OpenMS Team
+ */
+public class ListSplitterTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final int ROUNDS = 100000;
+
+    private static final String[] EDGE_CASES = { "", ",", ",,", "a", "a,",
+            "a,,", ",a", ",,a", "a,b", "a,,b", ",a,", " , ", "[", "]", "[,]",
+            "],[", "a[b,c]d,e", "a[b,c,d", "a]b,c", "a,b]", "[a,[b,c]],d",
+            "[a,[b,c],d],e", "[[a,b],c],d", "[a,b]],c", "[[a,b]", "a[b,c],",
+            "5[MS,MS:1001876, modification probability, 0.8]-UNIMOD:35",
+            "3-UNIMOD:4,5[MS,MS:1001876, , 0.8]-UNIMOD:35,,",
+            "[,],[,],", "null" };
+
+    private static final char[] ALPHABET = { 'a', 'b', ',', ',', '|', '[',
+            ']', ' ' };
+
+    @Test
+    public void testEdgeCases() {
+        for (String value : EDGE_CASES) {
+            checkSplit(value, ',');
+            checkSplit(value.replace(',', '|'), '|');
+        }
+    }
+
+    @Test
+    public void testRandomValues() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUNDS; ++i) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int c = 0; c < chars.length; ++c) {
+                chars[c] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            String value = new String(chars);
+            checkSplit(value, ',');
+            checkSplit(value, '|');
+        }
+    }
+
+    private static void checkSplit(final String value, final char separator) {
+        String quoted = Pattern.quote(String.valueOf(separator));
+        check(value, separator, false, value.split(quoted));
+        check(value, separator, true,
+                value.split(quoted + "(?![^\\[\\]]*+\\])"));
+    }
+
+    private static void check(final String value, final char separator,
+            final boolean bracketAware, final String[] expected) {
+        String message = "'" + value + "' split at '" + separator + "'"
+                + (bracketAware ? " outside of brackets" : "");
+        assertArrayEquals(message, expected,
+                split(new ListSplitter(value, separator, bracketAware), value));
+
+        // the field is surrounded by other bytes of the line
+        byte[] bytes = ("x\t" + value + "\ty").getBytes(ASCII);
+        ListSplitter splitter = new ListSplitter(bytes, 2,
+                2 + value.length(), separator, bracketAware);
+        assertArrayEquals(message, expected, split(splitter, bytes));
+        assertEquals(message, expected.length, splitter.count());
+        // count rewinds the splitter
+        assertArrayEquals(message, expected, split(splitter, bytes));
+    }
+
+    private static String[] split(final ListSplitter splitter,
+            final String value) {
+        List<String> elements = new ArrayList<String>();
+        while (splitter.next()) {
+            elements.add(value.substring(splitter.start(), splitter.end()));
+        }
+        return elements.toArray(new String[elements.size()]);
+    }
+
+    private static String[] split(final ListSplitter splitter,
+            final byte[] bytes) {
+        splitter.rewind();
+        List<String> elements = new ArrayList<String>();
+        while (splitter.next()) {
+            elements.add(new String(bytes, splitter.start(), splitter.end()
+                    - splitter.start(), ASCII));
+        }
+        return elements.toArray(new String[elements.size()]);
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link NumberParser} gives the same results and errors as
+ * {@link Double#parseDouble(String)} and {@link Integer#parseInt(String)} on
+ * randomly generated input.
+ * 
+ * @author The OpenMS Team
+ */
+public class NumberParserTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int ROUNDS = 100000;
+
+    private static final String[] EDGE_CASES = { "", "-", "+", ".", "-.",
+            "e5", "1e", "1e+", "1.e3", ".5", "5.", "-0", "-0.0", "+0.0",
+            "0e999", "00000.000001", "NaN", "-Infinity", "Infinity", " 1",
+            "1 ", "1d", "1f", "0x1p3", "1,5", "9007199254740993",
+            "123456789012345", "1234567890123456", "1e22", "1e23", "1e-22",
+            "1e-23", "4.9e-324", "1.7976931348623157e308", "1e309",
+            "2147483647", "2147483648", "-2147483648", "-2147483649",
+            "99999999999", "\u0661\u0662", "1\u00e9" };
+
+    @Test
+    public void testEdgeCases() {
+        for (String value : EDGE_CASES) {
+            checkDouble(value);
+            checkInt(value);
+        }
+    }
+
+    @Test
+    public void testRandomDoubles() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUNDS; ++i) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            checkDouble(Double.toString(d));
+            d = random.nextDouble() * Math.pow(10, random.nextInt(40) - 20);
+            checkDouble(Double.toString(d));
+            checkDouble(String.format(Locale.US, "%." + random.nextInt(18)
+                    + "f", d));
+            checkDouble(String.format(Locale.US, "%." + random.nextInt(18)
+                    + "e", d));
+        }
+    }
+
+    @Test
+    public void testRandomDecimalStrings() {
+        Random random = new Random(4711);
+        String alphabet = "0123456789012345678901234567890123456789.-+eE";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ROUNDS; ++i) {
+            sb.setLength(0);
+            int length = random.nextInt(25);
+            for (int j = 0; j < length; ++j) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            checkDouble(sb.toString());
+            checkInt(sb.toString());
+        }
+    }
+
+    @Test
+    public void testRandomInts() {
+        Random random = new Random(1234);
+        for (int i = 0; i < ROUNDS; ++i) {
+            checkInt(Integer.toString(random.nextInt()));
+            checkInt(Long.toString(random.nextLong() >> random.nextInt(64)));
+        }
+    }
+
+    @Test
+    public void testRanges() {
+        String line = "x\t-12.5e-3\ty";
+        byte[] bytes = line.getBytes(UTF8);
+        assertEquals(Double.doubleToRawLongBits(-12.5e-3),
+                Double.doubleToRawLongBits(NumberParser.parseDouble(bytes, 2,
+                        10)));
+        assertEquals(Double.doubleToRawLongBits(-12.5e-3),
+                Double.doubleToRawLongBits(NumberParser.parseDouble(line, 2,
+                        10)));
+        assertEquals(-12, NumberParser.parseInt(line, 2, 5));
+        assertEquals(-12, NumberParser.parseInt(bytes, 2, 5));
+    }
+
+    private static void checkDouble(final String value) {
+        String expected;
+        try {
+            expected = Long.toHexString(Double.doubleToRawLongBits(Double
+                    .parseDouble(value)));
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+        byte[] bytes = ("\t" + value + "\t").getBytes(UTF8);
+        String fromBytes;
+        String fromChars;
+        try {
+            fromBytes = Long.toHexString(Double
+                    .doubleToRawLongBits(NumberParser.parseDouble(bytes, 1,
+                            bytes.length - 1)));
+        } catch (NumberFormatException e) {
+            fromBytes = null;
+        }
+        try {
+            fromChars = Long.toHexString(Double
+                    .doubleToRawLongBits(NumberParser.parseDouble(value)));
+        } catch (NumberFormatException e) {
+            fromChars = null;
+        }
+        assertEquals("bytes: '" + value + "'", expected, fromBytes);
+        assertEquals("chars: '" + value + "'", expected, fromChars);
+    }
+
+    private static void checkInt(final String value) {
+        Integer expected;
+        try {
+            expected = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+        byte[] bytes = ("\t" + value + "\t").getBytes(UTF8);
+        try {
+            int actual = NumberParser.parseInt(bytes, 1, bytes.length - 1);
+            if (expected == null) {
+                fail("bytes: '" + value + "' should not be parsed");
+            }
+            assertEquals("bytes: '" + value + "'", expected.intValue(),
+                    actual);
+        } catch (NumberFormatException e) {
+            assertEquals("bytes: '" + value + "'", null, expected);
+        }
+        try {
+            int actual = NumberParser.parseInt(value);
+            if (expected == null) {
+                fail("chars: '" + value + "' should not be parsed");
+            }
+            assertEquals("chars: '" + value + "'", expected.intValue(),
+                    actual);
+        } catch (NumberFormatException e) {
+            assertEquals("chars: '" + value + "'", null, expected);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link OrderedExecutor} hands the results to its handler in
+ * submission order and rethrows the original error of a failed task.
+ * 
+ * @author The OpenMS Team
+ */
+public class OrderedExecutorTest {
+
+    private static final int TASKS = 200;
+
+    @Test
+    public void testOrderWithWorkers() throws Exception {
+        checkOrder(4);
+    }
+
+    @Test
+    public void testOrderWithoutWorkers() throws Exception {
+        checkOrder(1);
+    }
+
+    @Test
+    public void testTaskErrorIsRethrown() throws Exception {
+        final IOException error = new IOException("broken line");
+        OrderedExecutor<Integer> executor = new OrderedExecutor<Integer>(
+                "OrderedExecutorTest", 2, new Collector());
+        try {
+            executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    throw error;
+                }
+            });
+            executor.finish();
+            fail("The error of the task was not rethrown.");
+        } catch (IOException e) {
+            assertSame(error, e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void checkOrder(final int numberOfThreads)
+            throws Exception {
+        Collector collector = new Collector();
+        OrderedExecutor<Integer> executor = new OrderedExecutor<Integer>(
+                "OrderedExecutorTest", numberOfThreads, collector);
+        final Random random = new Random(42);
+        try {
+            for (int i = 0; i < TASKS; ++i) {
+                final int value = i;
+                final int delay = random.nextInt(3);
+                executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        // later tasks often finish first
+                        Thread.sleep(delay);
+                        return value;
+                    }
+                });
+            }
+            executor.finish();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(TASKS, collector.m_results.size());
+        for (int i = 0; i < TASKS; ++i) {
+            assertEquals(i, collector.m_results.get(i).intValue());
+        }
+    }
+
+    private static final class Collector implements
+            OrderedExecutor.ResultHandler<Integer> {
+
+        private final List<Integer> m_results = new ArrayList<Integer>();
+
+        @Override
+        public void handle(final Integer result) {
+            m_results.add(result);
+        }
+    }
+}
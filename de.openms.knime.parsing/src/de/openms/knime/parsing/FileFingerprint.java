@@ -0,0 +1,87 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+
+/**
+ * Fast fingerprint of a file that changes whenever the file is modified in
+ * practice. It combines size, modification time and checksums of the first
+ * and the last {@link #BLOCK_SIZE} bytes, so even multi-GB files are
+ * fingerprinted by reading two small blocks.
+ * 
+ * @author The OpenMS Team
+ */
+public final class FileFingerprint {
+
+    /**
+     * Number of bytes covered by each of the head and tail checksums.
+     */
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private FileFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of the given file.
+     * 
+     * @param file
+     *            The file.
+     * @return The fingerprint, equal for unchanged files.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    public static String compute(final File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            long size = in.length();
+            long head = checksum(in, 0, Math.min(size, BLOCK_SIZE));
+            long tail = checksum(in, Math.max(0, size - BLOCK_SIZE), size);
+            return size + ":" + file.lastModified() + ":"
+                    + Long.toHexString(head) + ":" + Long.toHexString(tail);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static long checksum(final RandomAccessFile in, final long start,
+            final long end) throws IOException {
+        byte[] buffer = new byte[(int) (end - start)];
+        in.seek(start);
+        in.readFully(buffer);
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.parsing;
+
+/**
+ * Splits list fields, e.g. of mzTab files, into their elements without creating intermediate
+ * arrays or Strings. The splitter walks over the value once and provides the
+ * range of each element, decoders parse or copy the elements directly from
+ * the underlying characters or bytes.
+ * 
+ * The results are the same as with {@link String#split(String)}: trailing
+ * empty elements are dropped and an empty value yields a single empty
+ * element. In bracket aware mode a separator is ignored if the next bracket
+ * behind it is a closing one, matching the former
+ * <code>,(?![^\[\]]*+\])</code> pattern used for modifications with CV
+ * parameters such as <code>5[MS,MS:1001876, modification probability,
+ * 0.8]-UNIMOD:35</code>.
+ * 
+ * Instances are not thread-safe, a splitter is created per value.
+ * 
+ * @author The OpenMS Team
+ */
+public final class ListSplitter {
+
+    private final CharSequence m_chars;
+
+    private final byte[] m_bytes;
+
+    private final int m_start;
+
+    private final char m_separator;
+
+    private final boolean m_bracketAware;
+
+    /**
+     * End of the value without trailing separators.
+     */
+    private final int m_end;
+
+    private final boolean m_empty;
+
+    /**
+     * Start of the next element, behind {@link #m_end} once all elements
+     * were returned.
+     */
+    private int m_position;
+
+    /**
+     * Position of the next bracket behind the last inspected separator or
+     * {@link #m_end} if there is none.
+     */
+    private int m_nextBracket;
+
+    private int m_elementStart;
+
+    private int m_elementEnd;
+
+    /**
+     * C'tor.
+     * 
+     * @param value
+     *            The list field.
+     * @param separator
+     *            The separator of the list elements.
+     * @param bracketAware
+     *            If separators inside square brackets are ignored.
+     */
+    public ListSplitter(final CharSequence value, final char separator,
+            final boolean bracketAware) {
+        this(value, null, 0, value.length(), separator, bracketAware);
+    }
+
+    /**
+     * C'tor.
+     * 
+     * @param bytes
+     *            The bytes holding the list field.
+     * @param start
+     *            The start of the field (inclusive).
+     * @param end
+     *            The end of the field (exclusive).
+     * @param separator
+     *            The separator of the list elements, an ASCII character.
+     * @param bracketAware
+     *            If separators inside square brackets are ignored.
+     */
+    public ListSplitter(final byte[] bytes, final int start, final int end,
+            final char separator, final boolean bracketAware) {
+        this(null, bytes, start, end, separator, bracketAware);
+    }
+
+    private ListSplitter(final CharSequence chars, final byte[] bytes,
+            final int start, final int end, final char separator,
+            final boolean bracketAware) {
+        m_chars = chars;
+        m_bytes = bytes;
+        m_start = start;
+        m_separator = separator;
+        m_bracketAware = bracketAware;
+        int last = end;
+        while (last > start && charAt(last - 1) == separator) {
+            --last;
+        }
+        m_end = last;
+        // a value of only separators has no element at all
+        m_empty = last == start && start != end;
+        rewind();
+    }
+
+    /**
+     * Starts over with the first element.
+     */
+    public void rewind() {
+        m_position = m_empty ? m_end + 1 : m_start;
+        m_nextBracket = m_start - 1;
+    }
+
+    /**
+     * Moves to the next element.
+     * 
+     * @return true if there is another element, false once all elements were
+     *         returned.
+     */
+    public boolean next() {
+        if (m_position > m_end) {
+            return false;
+        }
+        int i = m_position;
+        while (i < m_end && !isSeparator(i)) {
+            ++i;
+        }
+        m_elementStart = m_position;
+        m_elementEnd = i;
+        m_position = i + 1;
+        return true;
+    }
+
+    /**
+     * @return The number of elements, the splitter is rewound afterwards.
+     */
+    public int count() {
+        rewind();
+        int count = 0;
+        while (next()) {
+            ++count;
+        }
+        rewind();
+        return count;
+    }
+
+    /**
+     * @return The start of the current element (inclusive).
+     */
+    public int start() {
+        return m_elementStart;
+    }
+
+    /**
+     * @return The end of the current element (exclusive).
+     */
+    public int end() {
+        return m_elementEnd;
+    }
+
+    private char charAt(final int i) {
+        return m_chars != null ? m_chars.charAt(i) : (char) m_bytes[i];
+    }
+
+    private boolean isSeparator(final int i) {
+        if (charAt(i) != m_separator) {
+            return false;
+        }
+        if (!m_bracketAware) {
+            return true;
+        }
+        if (m_nextBracket <= i) {
+            int j = i + 1;
+            while (j < m_end && charAt(j) != '[' && charAt(j) != ']') {
+                ++j;
+            }
+            m_nextBracket = j;
+        }
+        return m_nextBracket == m_end || charAt(m_nextBracket) != ']';
+    }
+}
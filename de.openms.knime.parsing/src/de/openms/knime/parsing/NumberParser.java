@@ -0,0 +1,331 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.parsing;
+
+import java.nio.charset.Charset;
+
+/**
+ * Parses numbers directly from characters or UTF-8 encoded bytes without
+ * creating intermediate Strings. Plain decimal notation is converted on a
+ * fast path, everything else is passed on to
+ * {@link Integer#parseInt(String)} and {@link Double#parseDouble(String)}, so
+ * results and errors are bit for bit the same as with the JDK parsing.
+ * 
+ * @author The OpenMS Team
+ */
+public final class NumberParser {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Powers of ten that are exactly representable as double.
+     */
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+            1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+            1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * Largest exact power of ten, see {@link #POWERS_OF_TEN}.
+     */
+    private static final int MAX_EXACT_POWER = 22;
+
+    /**
+     * Number of significant decimal digits that always fit into the 53 bit
+     * mantissa of a double.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /**
+     * Largest integer up to which all integers are exactly representable as
+     * double.
+     */
+    private static final long MAX_EXACT_INTEGER = 1L << 53;
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parses an int from the given value.
+     * 
+     * @param value
+     *            The characters holding the number.
+     * @return The parsed value.
+     * @throws NumberFormatException
+     *             If the value is not a valid int.
+     */
+    public static int parseInt(final CharSequence value) {
+        return parseInt(null, value, 0, value.length());
+    }
+
+    /**
+     * Parses an int from the given range.
+     * 
+     * @param value
+     *            The characters holding the number.
+     * @param start
+     *            The start of the range (inclusive).
+     * @param end
+     *            The end of the range (exclusive).
+     * @return The parsed value.
+     * @throws NumberFormatException
+     *             If the range does not hold a valid int.
+     */
+    public static int parseInt(final CharSequence value, final int start,
+            final int end) {
+        return parseInt(null, value, start, end);
+    }
+
+    /**
+     * Parses an int from the given range.
+     * 
+     * @param bytes
+     *            The UTF-8 encoded bytes holding the number.
+     * @param start
+     *            The start of the range (inclusive).
+     * @param end
+     *            The end of the range (exclusive).
+     * @return The parsed value.
+     * @throws NumberFormatException
+     *             If the range does not hold a valid int.
+     */
+    public static int parseInt(final byte[] bytes, final int start,
+            final int end) {
+        return parseInt(bytes, null, start, end);
+    }
+
+    /**
+     * Parses a double from the given value.
+     * 
+     * @param value
+     *            The characters holding the number.
+     * @return The parsed value.
+     * @throws NumberFormatException
+     *             If the value is not a valid double.
+     * @see #parseDouble(byte[], int, int)
+     */
+    public static double parseDouble(final CharSequence value) {
+        return parseDouble(null, value, 0, value.length());
+    }
+
+    /**
+     * Parses a double from the given range.
+     * 
+     * @param value
+     *            The characters holding the number.
+     * @param start
+     *            The start of the range (inclusive).
+     * @param end
+     *            The end of the range (exclusive).
+     * @return The parsed value.
+     * @throws NumberFormatException
+     *             If the range does not hold a valid double.
+     * @see #parseDouble(byte[], int, int)
+     */
+    public static double parseDouble(final CharSequence value,
+            final int start, final int end) {
+        return parseDouble(null, value, start, end);
+    }
+
+    /**
+     * Parses a double from the given range. Decimal numbers with at most 15
+     * significant digits are converted exactly by at most two multiplications
+     * or a division by exact powers of ten (Clinger's fast path), all other
+     * inputs are handled by {@link Double#parseDouble(String)}.
+     * 
+     * @param bytes
+     *            The UTF-8 encoded bytes holding the number.
+     * @param start
+     *            The start of the range (inclusive).
+     * @param end
+     *            The end of the range (exclusive).
+     * @return The parsed value.
+     * @throws NumberFormatException
+     *             If the range does not hold a valid double.
+     */
+    public static double parseDouble(final byte[] bytes, final int start,
+            final int end) {
+        return parseDouble(bytes, null, start, end);
+    }
+
+    private static int parseInt(final byte[] bytes, final CharSequence chars,
+            final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end) {
+            char c = charAt(bytes, chars, i);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                ++i;
+            }
+        }
+        // at most 10 digits fit into an int, leave everything else to the JDK
+        if (i == end || end - i > 10) {
+            return Integer.parseInt(fallback(bytes, chars, start, end));
+        }
+        long value = 0;
+        for (; i < end; ++i) {
+            int digit = charAt(bytes, chars, i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(fallback(bytes, chars, start, end));
+            }
+            value = value * 10 + digit;
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Integer.parseInt(fallback(bytes, chars, start, end));
+        }
+        return (int) value;
+    }
+
+    private static double parseDouble(final byte[] bytes,
+            final CharSequence chars, final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end) {
+            char c = charAt(bytes, chars, i);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                ++i;
+            }
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        char c = 0;
+
+        // integer part
+        for (; i < end && isDigit(c = charAt(bytes, chars, i)); ++i) {
+            hasDigits = true;
+            if (mantissa != 0 || c != '0') {
+                if (digits == MAX_EXACT_DIGITS) {
+                    return Double.parseDouble(fallback(bytes, chars, start,
+                            end));
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                ++digits;
+            }
+        }
+        // fractional part
+        if (i < end && c == '.') {
+            for (++i; i < end && isDigit(c = charAt(bytes, chars, i)); ++i) {
+                hasDigits = true;
+                if (mantissa != 0 || c != '0') {
+                    if (digits == MAX_EXACT_DIGITS) {
+                        return Double.parseDouble(fallback(bytes, chars,
+                                start, end));
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    ++digits;
+                }
+                --exponent;
+            }
+        }
+        if (!hasDigits) {
+            return Double.parseDouble(fallback(bytes, chars, start, end));
+        }
+        // exponent
+        if (i < end && (c == 'e' || c == 'E')) {
+            ++i;
+            boolean negativeExponent = false;
+            if (i < end) {
+                c = charAt(bytes, chars, i);
+                if (c == '-' || c == '+') {
+                    negativeExponent = c == '-';
+                    ++i;
+                }
+            }
+            int exp = 0;
+            int expStart = i;
+            for (; i < end && isDigit(c = charAt(bytes, chars, i)); ++i) {
+                if (i - expStart == 4) {
+                    return Double.parseDouble(fallback(bytes, chars, start,
+                            end));
+                }
+                exp = exp * 10 + (c - '0');
+            }
+            if (i == expStart) {
+                return Double.parseDouble(fallback(bytes, chars, start, end));
+            }
+            exponent += negativeExponent ? -exp : exp;
+        }
+        // trailing characters, e.g., whitespace or type suffixes
+        if (i != end) {
+            return Double.parseDouble(fallback(bytes, chars, start, end));
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (exponent > MAX_EXACT_POWER) {
+            // move the surplus into the mantissa as long as it stays exact
+            while (exponent > MAX_EXACT_POWER
+                    && mantissa < MAX_EXACT_INTEGER / 10) {
+                mantissa *= 10;
+                --exponent;
+            }
+        }
+        if (exponent < -MAX_EXACT_POWER || exponent > MAX_EXACT_POWER) {
+            return Double.parseDouble(fallback(bytes, chars, start, end));
+        }
+        double value = mantissa;
+        if (exponent >= 0) {
+            value *= POWERS_OF_TEN[exponent];
+        } else {
+            value /= POWERS_OF_TEN[-exponent];
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Bytes outside of ASCII become characters that are neither digits nor
+     * signs, so they always end up in the fallback.
+     */
+    private static char charAt(final byte[] bytes, final CharSequence chars,
+            final int i) {
+        return bytes != null ? (char) (bytes[i] & 0xff) : chars.charAt(i);
+    }
+
+    private static String fallback(final byte[] bytes,
+            final CharSequence chars, final int start, final int end) {
+        if (bytes != null) {
+            return new String(bytes, start, end - start, UTF8);
+        }
+        return chars.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.parsing;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the conversion tasks of a reader on a pool of worker threads and hands
+ * their results to a {@link ResultHandler} in the order the tasks were
+ * submitted, i.e., in file order. At most twice as many tasks as there are
+ * threads are pending, which limits the number of lines and rows kept in
+ * memory. With a single thread the tasks are run by the submitting thread.
+ * 
+ * @param <T>
+ *            The result type of the tasks.
+ * @author The OpenMS Team
+ */
+public final class OrderedExecutor<T> {
+
+    /**
+     * Receives the results of the tasks in submission order. It is called by
+     * the thread submitting the tasks.
+     * 
+     * @param <T>
+     *            The result type of the tasks.
+     */
+    public interface ResultHandler<T> {
+
+        /**
+         * Handles the result of the next task.
+         * 
+         * @param result
+         *            The result of the task.
+         * @throws Exception
+         *             If the result cannot be handled.
+         */
+        void handle(T result) throws Exception;
+    }
+
+    private final ResultHandler<T> m_handler;
+
+    /**
+     * The worker threads or null if the tasks are run by the submitting
+     * thread.
+     */
+    private final ExecutorService m_executor;
+
+    /**
+     * Maximum number of tasks that are submitted but whose result was not yet
+     * handled.
+     */
+    private final int m_maxPending;
+
+    /**
+     * Submitted tasks in submission order.
+     */
+    private final LinkedList<Future<T>> m_pending = new LinkedList<Future<T>>();
+
+    /**
+     * C'tor.
+     * 
+     * @param name
+     *            The prefix of the names of the worker threads, e.g., the
+     *            name of the reader.
+     * @param numberOfThreads
+     *            The number of worker threads, a single thread runs the tasks
+     *            on the submitting thread.
+     * @param handler
+     *            The handler of the results.
+     */
+    public OrderedExecutor(final String name, final int numberOfThreads,
+            final ResultHandler<T> handler) {
+        m_handler = handler;
+        m_maxPending = 2 * numberOfThreads;
+        m_executor = numberOfThreads > 1 ? Executors.newFixedThreadPool(
+                numberOfThreads, new WorkerThreadFactory(name)) : null;
+    }
+
+    /**
+     * Submits a task. Results of tasks that are already done are handled,
+     * the call blocks while too many tasks are pending.
+     * 
+     * @param task
+     *            The task.
+     * @throws Exception
+     *             If a task failed or a result could not be handled.
+     */
+    public void submit(final Callable<T> task) throws Exception {
+        if (m_executor == null) {
+            m_handler.handle(task.call());
+            return;
+        }
+        m_pending.add(m_executor.submit(task));
+        while (m_pending.size() > m_maxPending) {
+            handleNext();
+        }
+    }
+
+    /**
+     * Waits until the results of all submitted tasks were handled.
+     * 
+     * @throws Exception
+     *             If a task failed or a result could not be handled.
+     */
+    public void finish() throws Exception {
+        while (!m_pending.isEmpty()) {
+            handleNext();
+        }
+    }
+
+    /**
+     * Stops all workers, discarding tasks that were not yet run.
+     */
+    public void shutdown() {
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+        }
+        m_pending.clear();
+    }
+
+    private void handleNext() throws Exception {
+        Future<T> result = m_pending.removeFirst();
+        T value;
+        try {
+            value = result.get();
+        } catch (ExecutionException e) {
+            // rethrow the original error of the task
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+        m_handler.handle(value);
+    }
+
+    /**
+     * Creates named daemon threads for the workers.
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+        private final String m_name;
+
+        private final int m_poolIdx = POOL_COUNT.incrementAndGet();
+
+        private final AtomicInteger m_threadCount = new AtomicInteger();
+
+        WorkerThreadFactory(final String name) {
+            m_name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(r, m_name + "-" + m_poolIdx + "-parser-"
+                    + m_threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
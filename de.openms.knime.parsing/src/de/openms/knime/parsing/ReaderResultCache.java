@@ -0,0 +1,454 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2015.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.parsing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeSettings;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+
+/**
+ * Keeps a copy of the output tables of a reader node, so that executing the
+ * node again on unchanged input files restores the tables instead of parsing
+ * the files. The tables are stored under a key derived from the node settings
+ * and the {@link FileFingerprint} of each input file. Output tables are
+ * deleted by KNIME on reset, the copy is not.
+ * 
+ * Writing the copy costs as much I/O as the output itself, so the cache is
+ * off unless the node setting created by {@link #createEnabledModel()} is
+ * selected. Each node keeps the result of its last execution only, in a
+ * directory of the KNIME temp directory that belongs to this node instance
+ * and is deleted by {@link #dispose()}. The copy is saved with the node
+ * internals, so the cache also survives reopening the workflow.
+ * 
+ * @author The OpenMS Team
+ */
+public final class ReaderResultCache {
+
+    private static final NodeLogger LOGGER = NodeLogger
+            .getLogger(ReaderResultCache.class);
+
+    /**
+     * Config key for enabling the cache.
+     */
+    public static final String CFG_ENABLED = "cache_result";
+
+    /**
+     * Prefix of the directories holding the cached tables of a node.
+     */
+    private static final String DIRECTORY_PREFIX = "openms-reader-cache";
+
+    /**
+     * Name of the file in the node internals that holds the cache key.
+     */
+    private static final String INTERNALS_FILE = "result_cache.xml";
+
+    /**
+     * Prefix of the table files in the node internals.
+     */
+    private static final String INTERNALS_TABLE_PREFIX = "result_cache_";
+
+    private static final String CFG_KEY = "key";
+
+    private static final String CFG_TABLE_COUNT = "table_count";
+
+    /**
+     * Creates the settings model that enables the cache.
+     * 
+     * @return The settings model, not selected by default.
+     */
+    public static SettingsModelBoolean createEnabledModel() {
+        return new SettingsModelBoolean(CFG_ENABLED, false);
+    }
+
+    /**
+     * Creates the dialog component of the settings model created by
+     * {@link #createEnabledModel()}.
+     * 
+     * @return The dialog component.
+     */
+    public static DialogComponentBoolean createDialogComponent() {
+        return new DialogComponentBoolean(createEnabledModel(),
+                "Keep a copy of the output for unchanged input");
+    }
+
+    private final SettingsModelBoolean m_enabled = createEnabledModel();
+
+    /**
+     * The directory of this instance holding the cached tables, null until
+     * the first table is stored.
+     */
+    private File m_directory;
+
+    /**
+     * Key of the cached result, null if there is none.
+     */
+    private String m_key;
+
+    /**
+     * The files holding the cached tables in the order of the output ports.
+     */
+    private File[] m_files;
+
+    /**
+     * Creates the key of a result. The key reads the start and end of each
+     * input file, so nodes create it only if {@link #isEnabled()}.
+     * 
+     * @param settings
+     *            Everything besides the input files the result depends on,
+     *            e.g., the node class and its settings.
+     * @param inputs
+     *            The input files.
+     * @return The key.
+     * @throws IOException
+     *             If an input file cannot be read.
+     */
+    public static String createKey(final String settings,
+            final List<File> inputs) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(settings.getBytes("UTF-8"));
+        for (File input : inputs) {
+            digest.update(("\n" + input.getAbsolutePath() + "\n" + FileFingerprint
+                    .compute(input)).getBytes("UTF-8"));
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b & 0xff));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return Whether the cache is enabled by the node settings.
+     */
+    public boolean isEnabled() {
+        return m_enabled.getBooleanValue();
+    }
+
+    /**
+     * Saves whether the cache is enabled.
+     * 
+     * @param settings
+     *            The node settings to write to.
+     */
+    public void saveSettingsTo(final NodeSettingsWO settings) {
+        m_enabled.saveSettingsTo(settings);
+    }
+
+    /**
+     * Validates the setting saved by {@link #saveSettingsTo(NodeSettingsWO)}
+     * if it exists.
+     * 
+     * @param settings
+     *            The node settings to validate.
+     * @throws InvalidSettingsException
+     *             If the setting is invalid.
+     */
+    public void validateSettings(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        if (settings.containsKey(CFG_ENABLED)) {
+            m_enabled.validateSettings(settings);
+        }
+    }
+
+    /**
+     * Loads whether the cache is enabled. Workflows created before the
+     * setting existed keep the cache disabled. Disabling the cache deletes
+     * the cached result.
+     * 
+     * @param settings
+     *            The node settings to read from.
+     * @throws InvalidSettingsException
+     *             If the setting is invalid.
+     */
+    public void loadSettingsFrom(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        if (settings.containsKey(CFG_ENABLED)) {
+            m_enabled.loadSettingsFrom(settings);
+        }
+        if (!isEnabled()) {
+            clear();
+        }
+    }
+
+    /**
+     * Restores the cached tables.
+     * 
+     * @param key
+     *            The key of the current input, see
+     *            {@link #createKey(String, List)}.
+     * @param exec
+     *            The execution context creating the tables.
+     * @return The tables or null if the cache is disabled or there is no
+     *         cached result for the key.
+     * @throws CanceledExecutionException
+     *             If the execution was canceled.
+     */
+    public BufferedDataTable[] get(final String key,
+            final ExecutionContext exec) throws CanceledExecutionException {
+        if (!isEnabled() || m_key == null || !m_key.equals(key)) {
+            return null;
+        }
+        for (File file : m_files) {
+            if (!file.isFile()) {
+                clear();
+                return null;
+            }
+        }
+        BufferedDataTable[] tables = new BufferedDataTable[m_files.length];
+        try {
+            for (int i = 0; i < tables.length; ++i) {
+                ContainerTable table = DataContainer.readFromZip(m_files[i]);
+                try {
+                    tables[i] = exec.createBufferedDataTable(table,
+                            exec.createSubProgress(1.0 / tables.length));
+                } finally {
+                    table.clear();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not read the cached result: " + e.getMessage());
+            clear();
+            return null;
+        }
+        LOGGER.info("Input files are unchanged, the cached result is used.");
+        return tables;
+    }
+
+    /**
+     * Stores a copy of the given tables, replacing the cached result. Nothing
+     * is written if the cache is disabled. Failing to write the copy does not
+     * fail the execution.
+     * 
+     * @param key
+     *            The key of the current input, see
+     *            {@link #createKey(String, List)}.
+     * @param tables
+     *            The output tables.
+     * @param exec
+     *            The execution monitor used to report progress.
+     * @throws CanceledExecutionException
+     *             If the execution was canceled.
+     */
+    public void put(final String key, final BufferedDataTable[] tables,
+            final ExecutionMonitor exec) throws CanceledExecutionException {
+        clear();
+        if (!isEnabled()) {
+            return;
+        }
+        File[] files = new File[tables.length];
+        try {
+            File directory = getDirectory();
+            for (int i = 0; i < tables.length; ++i) {
+                files[i] = new File(directory, "table_" + i + ".zip");
+                DataContainer.writeToZip(tables[i], files[i],
+                        exec.createSubProgress(1.0 / tables.length));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not cache the result: " + e.getMessage());
+            delete(files);
+            return;
+        }
+        m_key = key;
+        m_files = files;
+    }
+
+    /**
+     * Deletes the cached result.
+     */
+    public void clear() {
+        if (m_files != null) {
+            delete(m_files);
+        }
+        m_key = null;
+        m_files = null;
+    }
+
+    /**
+     * Deletes the cached result and the directory of this instance. To be
+     * called when the node is disposed.
+     */
+    public void dispose() {
+        clear();
+        if (m_directory != null) {
+            File[] files = m_directory.listFiles();
+            if (files != null) {
+                delete(files);
+            }
+            m_directory.delete();
+            m_directory = null;
+        }
+    }
+
+    /**
+     * @return The directory of this instance, created on first use.
+     */
+    private File getDirectory() throws IOException {
+        if (m_directory == null) {
+            File directory = File.createTempFile(DIRECTORY_PREFIX, "",
+                    new File(KNIMEConstants.getKNIMETempDir()));
+            if (!directory.delete() || !directory.mkdir()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            m_directory = directory;
+        }
+        return m_directory;
+    }
+
+    private static void delete(final File[] files) {
+        for (File file : files) {
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    private static void copy(final File from, final File to)
+            throws IOException {
+        InputStream in = new FileInputStream(from);
+        try {
+            OutputStream out = new FileOutputStream(to);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Saves the key and a copy of the cached tables into the given node
+     * internals directory.
+     * 
+     * @param internDir
+     *            The node internals directory.
+     * @throws IOException
+     *             If a file cannot be written.
+     */
+    public void saveInternals(final File internDir) throws IOException {
+        NodeSettings settings = new NodeSettings("result_cache");
+        if (m_key != null) {
+            for (int i = 0; i < m_files.length; ++i) {
+                copy(m_files[i], new File(internDir, INTERNALS_TABLE_PREFIX
+                        + i + ".zip"));
+            }
+            settings.addString(CFG_KEY, m_key);
+            settings.addInt(CFG_TABLE_COUNT, m_files.length);
+        }
+        OutputStream out = new FileOutputStream(new File(internDir,
+                INTERNALS_FILE));
+        try {
+            settings.saveToXML(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Restores the cached result saved by {@link #saveInternals(File)}. The
+     * tables are copied to the directory of this instance, since the
+     * internals directory is rewritten whenever the workflow is saved.
+     * 
+     * @param internDir
+     *            The node internals directory.
+     * @throws IOException
+     *             If a file cannot be read.
+     */
+    public void loadInternals(final File internDir) throws IOException {
+        clear();
+        File internalsFile = new File(internDir, INTERNALS_FILE);
+        if (!isEnabled() || !internalsFile.isFile()) {
+            return;
+        }
+        String key;
+        int tableCount;
+        InputStream in = new FileInputStream(internalsFile);
+        try {
+            NodeSettingsRO settings = NodeSettings.loadFromXML(in);
+            if (!settings.containsKey(CFG_TABLE_COUNT)) {
+                return;
+            }
+            key = settings.getString(CFG_KEY);
+            tableCount = settings.getInt(CFG_TABLE_COUNT);
+        } catch (InvalidSettingsException e) {
+            throw new IOException(e.getMessage());
+        } finally {
+            in.close();
+        }
+        File[] files = new File[tableCount];
+        try {
+            File directory = getDirectory();
+            for (int i = 0; i < files.length; ++i) {
+                files[i] = new File(directory, "table_" + i + ".zip");
+                copy(new File(internDir, INTERNALS_TABLE_PREFIX + i + ".zip"),
+                        files[i]);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not restore the cached result: "
+                    + e.getMessage());
+            delete(files);
+            return;
+        }
+        m_key = key;
+        m_files = files;
+    }
+}
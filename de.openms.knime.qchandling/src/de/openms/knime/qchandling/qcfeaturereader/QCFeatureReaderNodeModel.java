@@ -28,6 +28,7 @@ package de.openms.knime.qchandling.qcfeaturereader;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -49,6 +50,8 @@ import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
 
+import de.openms.knime.parsing.NumberParser;
+import de.openms.knime.parsing.ReaderResultCache;
 import de.openms.knime.qchandling.TSVReader;
 import de.openms.knime.qchandling.TSVReader.InvalidHeaderException;
 import de.openms.knime.qchandling.TSVReader.InvalidLineException;
@@ -61,6 +64,11 @@ import de.openms.knime.qchandling.TSVReader.InvalidLineException;
  */
 public class QCFeatureReaderNodeModel extends NodeModel {
 
+    /**
+     * Copy of the output of the last execution.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
     private static final int NUMBER_OF_COLUMNS = 7;
 
     /**
@@ -123,25 +131,25 @@ public class QCFeatureReaderNodeModel extends NodeModel {
             @Override
             protected DataCell[] parseLine(String[] tokens) {
                 DataCell[] cells = new DataCell[NUMBER_OF_COLUMNS];
-                cells[0] = new DoubleCell(Double.parseDouble(tokens[0]));
-                cells[1] = new DoubleCell(Double.parseDouble(tokens[1]));
-                cells[2] = new DoubleCell(Double.parseDouble(tokens[2]));
-                cells[3] = new IntCell(Integer.parseInt(tokens[3]));
+                cells[0] = new DoubleCell(NumberParser.parseDouble(tokens[0]));
+                cells[1] = new DoubleCell(NumberParser.parseDouble(tokens[1]));
+                cells[2] = new DoubleCell(NumberParser.parseDouble(tokens[2]));
+                cells[3] = new IntCell(NumberParser.parseInt(tokens[3]));
 
                 if (tokens.length > 4) {
-                    cells[4] = new DoubleCell(Double.parseDouble(tokens[4]));
+                    cells[4] = new DoubleCell(NumberParser.parseDouble(tokens[4]));
                 } else {
                     cells[4] = new DoubleCell(-1.0);
                 }
 
                 if (tokens.length > 5) {
-                    cells[5] = new DoubleCell(Double.parseDouble(tokens[5]));
+                    cells[5] = new DoubleCell(NumberParser.parseDouble(tokens[5]));
                 } else {
                     cells[5] = new DoubleCell(-1.0);
                 }
 
                 if (tokens.length > 6) {
-                    cells[6] = new IntCell(Integer.parseInt(tokens[6]));
+                    cells[6] = new IntCell(NumberParser.parseInt(tokens[6]));
                 } else {
                     cells[6] = new IntCell(-1);
                 }
@@ -156,13 +164,29 @@ public class QCFeatureReaderNodeModel extends NodeModel {
             }
         };
 
+        File file = new File(((IURIPortObject) inData[0]).getURIContents()
+                .get(0).getURI());
+        String cacheKey = null;
+        if (m_resultCache.isEnabled()) {
+            cacheKey = ReaderResultCache.createKey(getClass().getName(),
+                    Collections.singletonList(file));
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         BufferedDataContainer container = exec
                 .createDataContainer(createColumnSpec());
-        featureTSVReader.run(new File(((IURIPortObject) inData[0])
-                .getURIContents().get(0).getURI()), container, exec);
+        featureTSVReader.run(file, container, exec);
 
         container.close();
-        return new BufferedDataTable[] { container.getTable() };
+        BufferedDataTable[] result = new BufferedDataTable[] { container
+                .getTable() };
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, result, exec);
+        }
+        return result;
     }
 
     /**
@@ -186,6 +210,7 @@ public class QCFeatureReaderNodeModel extends NodeModel {
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
     }
 
     /**
@@ -194,6 +219,7 @@ public class QCFeatureReaderNodeModel extends NodeModel {
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -202,6 +228,15 @@ public class QCFeatureReaderNodeModel extends NodeModel {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
     }
 
     /**
@@ -211,6 +246,7 @@ public class QCFeatureReaderNodeModel extends NodeModel {
     protected void loadInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
     }
 
     /**
@@ -220,6 +256,7 @@ public class QCFeatureReaderNodeModel extends NodeModel {
     protected void saveInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.saveInternals(internDir);
     }
 
 }
@@ -30,6 +30,8 @@ import org.knime.core.node.NodeDialogPane;
 import org.knime.core.node.NodeFactory;
 import org.knime.core.node.NodeView;
 
+import de.openms.knime.parsing.ReaderResultCacheNodeDialog;
+
 /**
  * <code>NodeFactory</code> for the "QCIDReader" Node. Reads ID tsv files from
  * QCExporter
@@ -68,7 +70,7 @@ public class QCIDReaderNodeFactory extends NodeFactory<QCIDReaderNodeModel> {
      */
     @Override
     public boolean hasDialog() {
-        return false;
+        return true;
     }
 
     /**
@@ -76,7 +78,7 @@ public class QCIDReaderNodeFactory extends NodeFactory<QCIDReaderNodeModel> {
      */
     @Override
     public NodeDialogPane createNodeDialogPane() {
-        return null;
+        return new ReaderResultCacheNodeDialog();
     }
 
 }
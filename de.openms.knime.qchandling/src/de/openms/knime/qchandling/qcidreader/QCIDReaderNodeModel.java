@@ -28,6 +28,7 @@ package de.openms.knime.qchandling.qcidreader;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -50,6 +51,8 @@ import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
 
+import de.openms.knime.parsing.NumberParser;
+import de.openms.knime.parsing.ReaderResultCache;
 import de.openms.knime.qchandling.TSVReader;
 import de.openms.knime.qchandling.TSVReader.InvalidHeaderException;
 import de.openms.knime.qchandling.TSVReader.InvalidLineException;
@@ -62,6 +65,11 @@ import de.openms.knime.qchandling.TSVReader.InvalidLineException;
  */
 public class QCIDReaderNodeModel extends NodeModel {
 
+    /**
+     * Copy of the output of the last execution.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
     private static final int NUMBER_OF_COLUMNS = 7;
 
     /**
@@ -127,13 +135,13 @@ public class QCIDReaderNodeModel extends NodeModel {
             protected DataCell[] parseLine(String[] tokens) {
                 DataCell[] cells = new DataCell[NUMBER_OF_COLUMNS];
 
-                cells[0] = new DoubleCell(Double.parseDouble(tokens[0]));
-                cells[1] = new DoubleCell(Double.parseDouble(tokens[1]));
-                cells[2] = new DoubleCell(Double.parseDouble(tokens[2]));
+                cells[0] = new DoubleCell(NumberParser.parseDouble(tokens[0]));
+                cells[1] = new DoubleCell(NumberParser.parseDouble(tokens[1]));
+                cells[2] = new DoubleCell(NumberParser.parseDouble(tokens[2]));
                 cells[3] = new StringCell(tokens[3]);
-                cells[4] = new IntCell(Integer.parseInt(tokens[4]));
-                cells[5] = new DoubleCell(Double.parseDouble(tokens[5]));
-                cells[6] = new DoubleCell(Double.parseDouble(tokens[6]));
+                cells[4] = new IntCell(NumberParser.parseInt(tokens[4]));
+                cells[5] = new DoubleCell(NumberParser.parseDouble(tokens[5]));
+                cells[6] = new DoubleCell(NumberParser.parseDouble(tokens[6]));
 
                 return cells;
             }
@@ -145,13 +153,29 @@ public class QCIDReaderNodeModel extends NodeModel {
             }
         };
 
+        File file = new File(((IURIPortObject) inData[0]).getURIContents()
+                .get(0).getURI());
+        String cacheKey = null;
+        if (m_resultCache.isEnabled()) {
+            cacheKey = ReaderResultCache.createKey(getClass().getName(),
+                    Collections.singletonList(file));
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         BufferedDataContainer container = exec
                 .createDataContainer(createColumnSpec());
-        featureTSVReader.run(new File(((IURIPortObject) inData[0])
-                .getURIContents().get(0).getURI()), container, exec);
+        featureTSVReader.run(file, container, exec);
 
         container.close();
-        return new BufferedDataTable[] { container.getTable() };
+        BufferedDataTable[] result = new BufferedDataTable[] { container
+                .getTable() };
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, result, exec);
+        }
+        return result;
     }
 
     /**
@@ -175,6 +199,7 @@ public class QCIDReaderNodeModel extends NodeModel {
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
     }
 
     /**
@@ -183,6 +208,7 @@ public class QCIDReaderNodeModel extends NodeModel {
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -191,6 +217,15 @@ public class QCIDReaderNodeModel extends NodeModel {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
     }
 
     /**
@@ -200,6 +235,7 @@ public class QCIDReaderNodeModel extends NodeModel {
     protected void loadInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
     }
 
     /**
@@ -209,6 +245,7 @@ public class QCIDReaderNodeModel extends NodeModel {
     protected void saveInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.saveInternals(internDir);
     }
 
 }
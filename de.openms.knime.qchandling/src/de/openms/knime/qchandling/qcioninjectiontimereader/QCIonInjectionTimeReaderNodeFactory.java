@@ -4,6 +4,8 @@ import org.knime.core.node.NodeDialogPane;
 import org.knime.core.node.NodeFactory;
 import org.knime.core.node.NodeView;
 
+import de.openms.knime.parsing.ReaderResultCacheNodeDialog;
+
 /**
  * <code>NodeFactory</code> for the "QCIonInjectionTimeReader" Node. Reads an
  * ion injection time summary file into a KNIME table.
@@ -44,7 +46,7 @@ public class QCIonInjectionTimeReaderNodeFactory extends
      */
     @Override
     public boolean hasDialog() {
-        return false;
+        return true;
     }
 
     /**
@@ -52,7 +54,7 @@ public class QCIonInjectionTimeReaderNodeFactory extends
      */
     @Override
     public NodeDialogPane createNodeDialogPane() {
-        return null;
+        return new ReaderResultCacheNodeDialog();
     }
 
 }
@@ -2,6 +2,7 @@ package de.openms.knime.qchandling.qcioninjectiontimereader;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -24,6 +25,8 @@ import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
 
+import de.openms.knime.parsing.NumberParser;
+import de.openms.knime.parsing.ReaderResultCache;
 import de.openms.knime.qchandling.TSVReader;
 import de.openms.knime.qchandling.TSVReader.InvalidHeaderException;
 import de.openms.knime.qchandling.TSVReader.InvalidLineException;
@@ -36,6 +39,11 @@ import de.openms.knime.qchandling.TSVReader.InvalidLineException;
  */
 public class QCIonInjectionTimeReaderNodeModel extends NodeModel {
 
+    /**
+     * Copy of the output of the last execution.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
     // the logger instance
     @SuppressWarnings("unused")
     private static final NodeLogger LOGGER = NodeLogger
@@ -94,7 +102,7 @@ public class QCIonInjectionTimeReaderNodeModel extends NodeModel {
                 DataCell[] cells = new DataCell[2];
 
                 cells[0] = new StringCell(tokens[0]);
-                cells[1] = new DoubleCell(Double.parseDouble(tokens[1]));
+                cells[1] = new DoubleCell(NumberParser.parseDouble(tokens[1]));
 
                 return cells;
             }
@@ -105,13 +113,29 @@ public class QCIonInjectionTimeReaderNodeModel extends NodeModel {
             }
         };
 
+        File file = new File(((IURIPortObject) inData[0]).getURIContents()
+                .get(0).getURI());
+        String cacheKey = null;
+        if (m_resultCache.isEnabled()) {
+            cacheKey = ReaderResultCache.createKey(getClass().getName(),
+                    Collections.singletonList(file));
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         BufferedDataContainer container = exec
                 .createDataContainer(createColumnSpec());
-        precursorTSVReader.run(new File(((IURIPortObject) inData[0])
-                .getURIContents().get(0).getURI()), container, exec);
+        precursorTSVReader.run(file, container, exec);
 
         container.close();
-        return new BufferedDataTable[] { container.getTable() };
+        BufferedDataTable[] result = new BufferedDataTable[] { container
+                .getTable() };
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, result, exec);
+        }
+        return result;
     }
 
     /**
@@ -135,6 +159,7 @@ public class QCIonInjectionTimeReaderNodeModel extends NodeModel {
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
     }
 
     /**
@@ -143,6 +168,7 @@ public class QCIonInjectionTimeReaderNodeModel extends NodeModel {
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -151,6 +177,15 @@ public class QCIonInjectionTimeReaderNodeModel extends NodeModel {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
     }
 
     /**
@@ -160,6 +195,7 @@ public class QCIonInjectionTimeReaderNodeModel extends NodeModel {
     protected void loadInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
     }
 
     /**
@@ -169,6 +205,7 @@ public class QCIonInjectionTimeReaderNodeModel extends NodeModel {
     protected void saveInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.saveInternals(internDir);
     }
 
 }
@@ -28,6 +28,7 @@ package de.openms.knime.qchandling.qcprecursorreader;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -49,6 +50,8 @@ import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
 
+import de.openms.knime.parsing.NumberParser;
+import de.openms.knime.parsing.ReaderResultCache;
 import de.openms.knime.qchandling.TSVReader;
 import de.openms.knime.qchandling.TSVReader.InvalidHeaderException;
 import de.openms.knime.qchandling.TSVReader.InvalidLineException;
@@ -61,6 +64,11 @@ import de.openms.knime.qchandling.TSVReader.InvalidLineException;
  */
 public class QCPrecursorReaderNodeModel extends NodeModel {
 
+    /**
+     * Copy of the output of the last execution.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
     /**
      * Static method that provides the incoming {@link PortType}s.
      * 
@@ -119,11 +127,11 @@ public class QCPrecursorReaderNodeModel extends NodeModel {
             protected DataCell[] parseLine(String[] tokens) {
                 DataCell[] cells = new DataCell[5];
 
-                cells[0] = new DoubleCell(Double.parseDouble(tokens[0]));
-                cells[1] = new DoubleCell(Double.parseDouble(tokens[1]));
-                cells[2] = new IntCell(Integer.parseInt(tokens[2]));
-                cells[3] = new DoubleCell(Double.parseDouble(tokens[3]));
-                cells[4] = new IntCell(Integer.parseInt(tokens[4]));
+                cells[0] = new DoubleCell(NumberParser.parseDouble(tokens[0]));
+                cells[1] = new DoubleCell(NumberParser.parseDouble(tokens[1]));
+                cells[2] = new IntCell(NumberParser.parseInt(tokens[2]));
+                cells[3] = new DoubleCell(NumberParser.parseDouble(tokens[3]));
+                cells[4] = new IntCell(NumberParser.parseInt(tokens[4]));
 
                 return cells;
             }
@@ -134,13 +142,29 @@ public class QCPrecursorReaderNodeModel extends NodeModel {
             }
         };
 
+        File file = new File(((IURIPortObject) inData[0]).getURIContents()
+                .get(0).getURI());
+        String cacheKey = null;
+        if (m_resultCache.isEnabled()) {
+            cacheKey = ReaderResultCache.createKey(getClass().getName(),
+                    Collections.singletonList(file));
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         BufferedDataContainer container = exec
                 .createDataContainer(createColumnSpec());
-        precursorTSVReader.run(new File(((IURIPortObject) inData[0])
-                .getURIContents().get(0).getURI()), container, exec);
+        precursorTSVReader.run(file, container, exec);
 
         container.close();
-        return new BufferedDataTable[] { container.getTable() };
+        BufferedDataTable[] result = new BufferedDataTable[] { container
+                .getTable() };
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, result, exec);
+        }
+        return result;
     }
 
     /**
@@ -164,6 +188,7 @@ public class QCPrecursorReaderNodeModel extends NodeModel {
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
     }
 
     /**
@@ -172,6 +197,7 @@ public class QCPrecursorReaderNodeModel extends NodeModel {
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -180,6 +206,15 @@ public class QCPrecursorReaderNodeModel extends NodeModel {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
     }
 
     /**
@@ -189,6 +224,7 @@ public class QCPrecursorReaderNodeModel extends NodeModel {
     protected void loadInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
     }
 
     /**
@@ -198,5 +234,6 @@ public class QCPrecursorReaderNodeModel extends NodeModel {
     protected void saveInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.saveInternals(internDir);
     }
 }
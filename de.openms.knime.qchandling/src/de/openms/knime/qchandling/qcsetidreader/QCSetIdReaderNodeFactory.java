@@ -30,6 +30,8 @@ import org.knime.core.node.NodeDialogPane;
 import org.knime.core.node.NodeFactory;
 import org.knime.core.node.NodeView;
 
+import de.openms.knime.parsing.ReaderResultCacheNodeDialog;
+
 /**
  * <code>NodeFactory</code> for the "QCPrecursorReader" Node. Read the precursor
  * file created by the QCCalculator
@@ -69,7 +71,7 @@ public class QCSetIdReaderNodeFactory extends
      */
     @Override
     public boolean hasDialog() {
-        return false;
+        return true;
     }
 
     /**
@@ -77,7 +79,7 @@ public class QCSetIdReaderNodeFactory extends
      */
     @Override
     public NodeDialogPane createNodeDialogPane() {
-        return null;
+        return new ReaderResultCacheNodeDialog();
     }
 
 }
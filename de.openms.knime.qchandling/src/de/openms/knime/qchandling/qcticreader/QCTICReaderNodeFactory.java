@@ -30,6 +30,8 @@ import org.knime.core.node.NodeDialogPane;
 import org.knime.core.node.NodeFactory;
 import org.knime.core.node.NodeView;
 
+import de.openms.knime.parsing.ReaderResultCacheNodeDialog;
+
 /**
  * <code>NodeFactory</code> for the "QCTICReader" Node.
  * 
@@ -68,7 +70,7 @@ public class QCTICReaderNodeFactory extends NodeFactory<QCTICReaderNodeModel> {
      */
     @Override
     public boolean hasDialog() {
-        return false;
+        return true;
     }
 
     /**
@@ -76,6 +78,6 @@ public class QCTICReaderNodeFactory extends NodeFactory<QCTICReaderNodeModel> {
      */
     @Override
     public NodeDialogPane createNodeDialogPane() {
-        return null;
+        return new ReaderResultCacheNodeDialog();
     }
 }
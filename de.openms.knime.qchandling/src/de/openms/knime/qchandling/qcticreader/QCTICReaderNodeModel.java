@@ -28,6 +28,7 @@ package de.openms.knime.qchandling.qcticreader;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -48,6 +49,8 @@ import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
 
+import de.openms.knime.parsing.NumberParser;
+import de.openms.knime.parsing.ReaderResultCache;
 import de.openms.knime.qchandling.TSVReader;
 import de.openms.knime.qchandling.TSVReader.InvalidHeaderException;
 import de.openms.knime.qchandling.TSVReader.InvalidLineException;
@@ -59,6 +62,11 @@ import de.openms.knime.qchandling.TSVReader.InvalidLineException;
  */
 public class QCTICReaderNodeModel extends NodeModel {
 
+    /**
+     * Copy of the output of the last execution.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
     /**
      * Static method that provides the incoming {@link PortType}s.
      * 
@@ -98,8 +106,8 @@ public class QCTICReaderNodeModel extends NodeModel {
             @Override
             protected DataCell[] parseLine(String[] tokens) {
                 DataCell[] cells = new DataCell[2];
-                cells[0] = new DoubleCell(Double.parseDouble(tokens[0]));
-                cells[1] = new DoubleCell(Double.parseDouble(tokens[1]));
+                cells[0] = new DoubleCell(NumberParser.parseDouble(tokens[0]));
+                cells[1] = new DoubleCell(NumberParser.parseDouble(tokens[1]));
 
                 return cells;
             }
@@ -110,13 +118,29 @@ public class QCTICReaderNodeModel extends NodeModel {
             }
         };
 
+        File file = new File(((IURIPortObject) inData[0]).getURIContents()
+                .get(0).getURI());
+        String cacheKey = null;
+        if (m_resultCache.isEnabled()) {
+            cacheKey = ReaderResultCache.createKey(getClass().getName(),
+                    Collections.singletonList(file));
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         BufferedDataContainer container = exec
                 .createDataContainer(createColumnSpec());
-        ticTSVReader.run(new File(((IURIPortObject) inData[0]).getURIContents()
-                .get(0).getURI()), container, exec);
+        ticTSVReader.run(file, container, exec);
 
         container.close();
-        return new BufferedDataTable[] { container.getTable() };
+        BufferedDataTable[] result = new BufferedDataTable[] { container
+                .getTable() };
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, result, exec);
+        }
+        return result;
     }
 
     private DataTableSpec createColumnSpec() {
@@ -149,6 +173,7 @@ public class QCTICReaderNodeModel extends NodeModel {
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
     }
 
     /**
@@ -157,6 +182,7 @@ public class QCTICReaderNodeModel extends NodeModel {
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -165,6 +191,15 @@ public class QCTICReaderNodeModel extends NodeModel {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
     }
 
     /**
@@ -174,6 +209,7 @@ public class QCTICReaderNodeModel extends NodeModel {
     protected void loadInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
     }
 
     /**
@@ -183,6 +219,7 @@ public class QCTICReaderNodeModel extends NodeModel {
     protected void saveInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.saveInternals(internDir);
     }
 
 }
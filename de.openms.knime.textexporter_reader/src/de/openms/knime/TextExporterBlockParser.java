@@ -0,0 +1,187 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2013.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.BufferedDataContainer;
+
+import de.openms.knime.parsing.OrderedExecutor;
+
+/**
+ * Pairs the CONSENSUS or FEATURE lines of a TextExporter file with their
+ * identifications and converts them to rows, optionally on a pool of worker
+ * threads. Each element line starts a new element, so the body can be split
+ * into blocks at element lines that are paired independently. The reading
+ * thread collects the lines into blocks, the rows are added to the container
+ * in the order of the file by an {@link OrderedExecutor}.
+ * 
+ * @author The OpenMS Team
+ */
+final class TextExporterBlockParser {
+
+    /**
+     * Minimum number of lines of a block. A block is only closed at the next
+     * element line.
+     */
+    static final int BLOCK_SIZE = 1024;
+
+    private final TextExporterParser m_parser;
+
+    private final DataTableSpec m_spec;
+
+    private final BufferedDataContainer m_container;
+
+    private final OrderedExecutor<List<DataRow>> m_executor;
+
+    /**
+     * The block currently filled by the reading thread.
+     */
+    private Block m_current;
+
+    /**
+     * The row index of the first element of the current block.
+     */
+    private int m_rowIdx = 1;
+
+    /**
+     * C'tor.
+     * 
+     * @param parser
+     *            The parser whose element and separator are used.
+     * @param spec
+     *            The spec of the rows.
+     * @param container
+     *            The container the rows are added to.
+     * @param numberOfThreads
+     *            The number of worker threads, a single thread converts the
+     *            blocks on the reading thread.
+     */
+    TextExporterBlockParser(final TextExporterParser parser,
+            final DataTableSpec spec, final BufferedDataContainer container,
+            final int numberOfThreads) {
+        m_parser = parser;
+        m_spec = spec;
+        m_container = container;
+        m_executor = new OrderedExecutor<List<DataRow>>("TextExporterReader",
+                numberOfThreads,
+                new OrderedExecutor.ResultHandler<List<DataRow>>() {
+                    @Override
+                    public void handle(final List<DataRow> rows) {
+                        for (DataRow row : rows) {
+                            m_container.addRowToTable(row);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Adds a line of the body. Lines that are neither element nor PEPTIDE
+     * lines are ignored.
+     * 
+     * @param line
+     *            The line.
+     * @throws Exception
+     *             If a previously submitted line could not be parsed.
+     */
+    void addLine(final String line) throws Exception {
+        boolean isElement = line.startsWith(m_parser.getElementOfInterest());
+        if (!isElement && !line.startsWith("PEPTIDE")) {
+            return;
+        }
+        if (isElement && m_current != null
+                && m_current.m_lines.size() >= BLOCK_SIZE) {
+            submitCurrent();
+        }
+        if (m_current == null) {
+            m_current = new Block(m_rowIdx);
+        }
+        m_current.m_lines.add(line);
+        if (isElement) {
+            ++m_rowIdx;
+        }
+    }
+
+    /**
+     * Submits the remaining lines and waits until all rows were added to the
+     * container.
+     * 
+     * @throws Exception
+     *             If one of the lines could not be parsed.
+     */
+    void finish() throws Exception {
+        if (m_current != null) {
+            submitCurrent();
+        }
+        m_executor.finish();
+    }
+
+    /**
+     * Stops all workers, discarding blocks that were not yet converted.
+     */
+    void shutdown() {
+        m_executor.shutdown();
+    }
+
+    private void submitCurrent() throws Exception {
+        Block block = m_current;
+        m_current = null;
+        m_executor.submit(block);
+    }
+
+    /**
+     * Consecutive element and PEPTIDE lines starting at an element line or at
+     * the start of the body.
+     */
+    private final class Block implements Callable<List<DataRow>> {
+
+        private final List<String> m_lines = new ArrayList<String>(
+                BLOCK_SIZE + 1);
+
+        /**
+         * The row index of the first element line of the block.
+         */
+        private final int m_firstRowIdx;
+
+        Block(final int firstRowIdx) {
+            m_firstRowIdx = firstRowIdx;
+        }
+
+        @Override
+        public List<DataRow> call() throws Exception {
+            return m_parser.parseElementBlock(m_spec, m_lines, m_firstRowIdx);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2013.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettings;
+import org.knime.core.node.NodeSettingsRO;
+
+import de.openms.knime.parsing.FileFingerprint;
+
+/**
+ * Remembers the header lines of the file last read by a TextExporter reader
+ * together with the {@link FileFingerprint} of the file, so the reader can
+ * derive its table specs while configuring. The header lines are read by
+ * {@link TextExporterParser#readHeaderLines(File)}, which stops at the first
+ * record, and are only read again if the file changes.
+ * 
+ * @author The OpenMS Team
+ */
+public final class TextExporterHeaderCache {
+
+    /**
+     * Name of the file in the node internals that holds the header cache.
+     */
+    private static final String INTERNALS_FILE = "header_cache.xml";
+
+    private static final String CFG_FILE = "file";
+
+    private static final String CFG_FINGERPRINT = "fingerprint";
+
+    private static final String CFG_HEADER_LINES = "header_lines";
+
+    /**
+     * The file last read, null if there is none.
+     */
+    private File m_file;
+
+    /**
+     * The fingerprint of the file when its header lines were read.
+     */
+    private String m_fingerprint;
+
+    /**
+     * The header lines, null if they were not read yet.
+     */
+    private List<String> m_headerLines;
+
+    /**
+     * @return The file whose headers are cached, null if there is none.
+     */
+    public File getFile() {
+        return m_file;
+    }
+
+    /**
+     * Sets the file whose headers are cached. The headers are read by the next
+     * call to {@link #getHeaderLines()} unless the file did not change.
+     * 
+     * @param file
+     *            The file read by the node.
+     */
+    public void setFile(final File file) {
+        if (!file.equals(m_file)) {
+            m_file = file;
+            m_fingerprint = null;
+            m_headerLines = null;
+        }
+    }
+
+    /**
+     * @return The header lines of the file, null if there is no file or it
+     *         does not exist anymore.
+     * @throws IOException
+     *             If the headers have to be read and the file cannot be read.
+     */
+    public List<String> getHeaderLines() throws IOException {
+        if (m_file == null || !m_file.isFile()) {
+            return null;
+        }
+        String fingerprint = FileFingerprint.compute(m_file);
+        if (m_headerLines == null || !fingerprint.equals(m_fingerprint)) {
+            m_headerLines = TextExporterParser.readHeaderLines(m_file);
+            m_fingerprint = fingerprint;
+        }
+        return m_headerLines;
+    }
+
+    /**
+     * Saves the cache into the given node internals directory.
+     * 
+     * @param internDir
+     *            The node internals directory.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    public void saveInternals(final File internDir) throws IOException {
+        NodeSettings settings = new NodeSettings("header_cache");
+        if (m_file != null) {
+            settings.addString(CFG_FILE, m_file.getAbsolutePath());
+            if (m_headerLines != null) {
+                settings.addString(CFG_FINGERPRINT, m_fingerprint);
+                settings.addStringArray(CFG_HEADER_LINES,
+                        m_headerLines.toArray(new String[m_headerLines.size()]));
+            }
+        }
+        OutputStream out = new FileOutputStream(new File(internDir,
+                INTERNALS_FILE));
+        try {
+            settings.saveToXML(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Restores the cache saved by {@link #saveInternals(File)}.
+     * 
+     * @param internDir
+     *            The node internals directory.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    public void loadInternals(final File internDir) throws IOException {
+        m_file = null;
+        m_fingerprint = null;
+        m_headerLines = null;
+        File internalsFile = new File(internDir, INTERNALS_FILE);
+        if (!internalsFile.isFile()) {
+            return;
+        }
+        InputStream in = new FileInputStream(internalsFile);
+        try {
+            NodeSettingsRO settings = NodeSettings.loadFromXML(in);
+            if (settings.containsKey(CFG_FILE)) {
+                m_file = new File(settings.getString(CFG_FILE));
+            }
+            if (settings.containsKey(CFG_HEADER_LINES)) {
+                m_fingerprint = settings.getString(CFG_FINGERPRINT);
+                m_headerLines = Arrays.asList(settings
+                        .getStringArray(CFG_HEADER_LINES));
+            }
+        } catch (InvalidSettingsException e) {
+            throw new IOException(e.getMessage());
+        } finally {
+            in.close();
+        }
+    }
+}
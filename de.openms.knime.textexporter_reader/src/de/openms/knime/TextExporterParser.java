@@ -35,12 +35,20 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.DoubleCell;
@@ -52,6 +60,8 @@ import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.NodeLogger;
 
+import de.openms.knime.parsing.NumberParser;
+
 /**
  * Parser for text based feature / peptide ID representations as exported by OpenMS'
  * TextExporter.
@@ -64,6 +74,64 @@ public class TextExporterParser {
 	private static final NodeLogger logger = NodeLogger
 			.getLogger(TextExporterParser.class);
 
+	/**
+	 * Maximum number of header lines read by {@link #readHeaderLines(File)}.
+	 */
+	public static final int MAX_HEADER_LINES = 1000;
+
+	/**
+	 * Index of the MAP table of {@link #parseRecords(File, boolean, ExecutionContext)}.
+	 */
+	public static final int MAP_TABLE = 0;
+
+	/**
+	 * Index of the RUN table of {@link #parseRecords(File, boolean, ExecutionContext)}.
+	 */
+	public static final int RUN_TABLE = 1;
+
+	/**
+	 * Index of the PROTEIN table of
+	 * {@link #parseRecords(File, boolean, ExecutionContext)}.
+	 */
+	public static final int PROTEIN_TABLE = 2;
+
+	/**
+	 * Index of the CONSENSUS or FEATURE table of
+	 * {@link #parseRecords(File, boolean, ExecutionContext)}.
+	 */
+	public static final int ELEMENT_TABLE = 3;
+
+	/**
+	 * Index of the PEPTIDE table of
+	 * {@link #parseRecords(File, boolean, ExecutionContext)}.
+	 */
+	public static final int PEPTIDE_TABLE = 4;
+
+	/**
+	 * Index of the table of the per-map values of the consensus elements of
+	 * {@link #parseRecords(File, boolean, ExecutionContext)}.
+	 */
+	public static final int MAP_VALUES_TABLE = 5;
+
+	/**
+	 * Name of the column that links the PEPTIDE table to the CONSENSUS or
+	 * FEATURE table of {@link #parseRecords(File, boolean, ExecutionContext)}.
+	 */
+	public static final String ELEMENT_ID_COLUMN = "element_id";
+
+	/**
+	 * The records that describe the maps, search runs and proteins of a file,
+	 * in the order of their tables.
+	 */
+	private static final String[] DESCRIPTION_RECORDS = { "MAP", "RUN",
+			"PROTEIN" };
+
+	/**
+	 * The records that are converted to a table of elements, in the order
+	 * they are looked up in the header.
+	 */
+	private static final String[] ELEMENT_RECORDS = { "CONSENSUS", "FEATURE" };
+
 	/**
 	 * The separator used in the file
 	 */
@@ -76,6 +144,11 @@ public class TextExporterParser {
 	
 	private boolean m_peponlymode = false;
 
+	/**
+	 * The number of threads that convert CONSENSUS or FEATURE lines.
+	 */
+	private int m_numberOfThreads = 1;
+
 	/**
 	 * 
 	 * @param elementOfInterest
@@ -85,6 +158,28 @@ public class TextExporterParser {
 		m_elementOfInterest = elementOfInterest;
 	}
 
+	/**
+	 * @return The element to parse.
+	 */
+	String getElementOfInterest() {
+		return m_elementOfInterest;
+	}
+
+	/**
+	 * Sets the number of threads that pair and convert CONSENSUS or FEATURE
+	 * lines in {@link #parseFile(File, ExecutionContext)}. With more than one
+	 * thread the file is split into blocks at element lines, which are
+	 * converted by worker threads while the file is read. The rows keep the
+	 * order of the file.
+	 * 
+	 * @param numberOfThreads
+	 *            The number of threads, 1 converts the lines on the reading
+	 *            thread.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		m_numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
 	/**
 	 * Try to determine the separator in this file based on one of the header
 	 * lines.
@@ -108,6 +203,79 @@ public class TextExporterParser {
 		}
 	}
 
+	/**
+	 * Reads the header lines of the given file, i.e., the lines starting with
+	 * '#' before the first record, but at most {@link #MAX_HEADER_LINES}.
+	 * 
+	 * @param inputFile
+	 *            The file written by the TextExporter.
+	 * @return The header lines.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public static List<String> readHeaderLines(final File inputFile)
+			throws IOException {
+		BufferedReader brReader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(inputFile)));
+		try {
+			List<String> headerLines = new ArrayList<String>();
+			String line;
+			while (headerLines.size() < MAX_HEADER_LINES
+					&& (line = brReader.readLine()) != null
+					&& line.startsWith("#")) {
+				headerLines.add(line);
+			}
+			return headerLines;
+		} finally {
+			brReader.close();
+		}
+	}
+
+	/**
+	 * Derives the spec of the table of
+	 * {@link #parseFile(File, ExecutionContext)} from the header lines of a
+	 * file and guesses the separator of the file. If there is no header for
+	 * the element of interest, but neither for maps, features or consensus
+	 * elements, the file is assumed to hold only peptides described by the
+	 * last header line.
+	 * 
+	 * @param headerLines
+	 *            The header lines, see {@link #readHeaderLines(File)}.
+	 * @return The spec.
+	 * @throws Exception
+	 *             If the header lines do not describe the element of interest.
+	 */
+	public DataTableSpec parseHeaderLines(final List<String> headerLines)
+			throws Exception {
+		DataTableSpec spec = null;
+		String lastheaderline = "";
+		boolean hasNonPeptideHeader = false;
+		for (String line : headerLines) {
+			if (line.startsWith("#" + m_elementOfInterest)) {
+				spec = parseDataTableSpec(line);
+			}
+			if (line.startsWith("#MAP") || line.startsWith("#FEATURE") || line.startsWith("#CONSENSUS"))
+			{
+				hasNonPeptideHeader = true;
+			}
+			lastheaderline = line;
+		}
+
+		// If no "header" for this element type (here PEPTIDE) was found
+		// assume a standard one
+		if (spec == null)
+		{
+			if (!hasNonPeptideHeader)
+			{
+				m_peponlymode = true;
+				spec = parseDataTableSpec(lastheaderline);
+			} else {
+				throw new Exception("No peptide data found. Run TextExporter without no_id and without proteins_only.");
+			}
+		}
+		return spec;
+	}
+
 	public BufferedDataTable parseFile(File inputFile,
 			final ExecutionContext exec) throws Exception, IOException {
 		BufferedReader brReader = null;
@@ -120,42 +288,14 @@ public class TextExporterParser {
 					new FileInputStream(inputFile)));
 
 			// find start point
+			List<String> headerLines = new ArrayList<String>();
 			String line;
-			String lastheaderline = "";
-			boolean hasNonPeptideHeader = false;
-			while ((line = brReader.readLine()) != null) {
-				if (line.startsWith("#" + m_elementOfInterest)) {
-					spec = parseDataTableSpec(line);
-					container = exec.createDataContainer(spec);
-				}
-				if (line.startsWith("#MAP") || line.startsWith("#FEATURE") || line.startsWith("#CONSENSUS"))
-				{
-					hasNonPeptideHeader = true;
-				}
-				
-				if (!line.startsWith("#"))
-				{
-					break;
-				}
-				else
-				{
-					lastheaderline = line;
-				}
-			}
-
-			// If no "header" for this element type (here PEPTIDE) was found
-			// assume a standard one
-			if (container == null)
-			{
-				if (!hasNonPeptideHeader)
-				{
-					m_peponlymode = true;
-					spec = parseDataTableSpec(lastheaderline);
-					container = exec.createDataContainer(spec);		
-				} else {
-					throw new Exception("No peptide data found. Run TextExporter without no_id and without proteins_only.");
-				}
+			while ((line = brReader.readLine()) != null
+					&& line.startsWith("#")) {
+				headerLines.add(line);
 			}
+			spec = parseHeaderLines(headerLines);
+			container = exec.createDataContainer(spec);
 			
 			// now parse the content
 			int rowIdx = 1;
@@ -169,32 +309,16 @@ public class TextExporterParser {
 				}
 			}
 			else {
-				String lastConsensusLine = null;			
-				while ((line = brReader.readLine()) != null) {
-					if (line.startsWith(m_elementOfInterest)) {
-						// we still have an unparsed last consensus line
-						if (lastConsensusLine != null) {
-							container.addRowToTable(parseLine(spec, container,
-									lastConsensusLine, "", rowIdx++));
-						}
-						lastConsensusLine = line;
-					} else if (line.startsWith("PEPTIDE")) {
-						if (lastConsensusLine != null) {
-							container.addRowToTable(parseLine(spec, container,
-									lastConsensusLine, line, rowIdx++));
-
-							// clear last consensus for next round
-							lastConsensusLine = null;
-						} else {
-							logger.info("Found two identifications for last consensus element. Will ignore second.");
-						}
+				TextExporterBlockParser blockParser = new TextExporterBlockParser(
+						this, spec, container, m_numberOfThreads);
+				try {
+					while ((line = brReader.readLine()) != null) {
+						blockParser.addLine(line);
+						exec.checkCanceled();
 					}
-					exec.checkCanceled();
-				}
-				// ensure that there is no unfinished consensus line
-				if (lastConsensusLine != null) {
-					container.addRowToTable(parseLine(spec, container,
-							lastConsensusLine, "", rowIdx++));
+					blockParser.finish();
+				} finally {
+					blockParser.shutdown();
 				}
 			}
 			
@@ -210,6 +334,557 @@ public class TextExporterParser {
 		return out;
 	}
 
+	/**
+	 * Reads all records of the given file in a single pass. The MAP, RUN and
+	 * PROTEIN records are converted to tables with the columns of their
+	 * header lines. The CONSENSUS or FEATURE records are converted like
+	 * {@link #parseFile(File, ExecutionContext)} does for these elements, i.e.,
+	 * together with the first following PEPTIDE record, while all PEPTIDE
+	 * records are written to the peptide table. Tables of records the file
+	 * does not contain are empty.
+	 * <p>
+	 * If the file holds CONSENSUS or FEATURE records, both the element and the
+	 * peptide table start with the {@link #ELEMENT_ID_COLUMN}. It numbers the
+	 * elements in the order of the file, starting at 1 like the row keys of
+	 * the element table, and references the element a PEPTIDE record follows,
+	 * so all identifications of an element are kept. The column is missing
+	 * for PEPTIDE records before the first element. Only the current element
+	 * line is kept in memory.
+	 * <p>
+	 * The CONSENSUS header holds the rt, mz, intensity, charge and width of
+	 * each map (rt_0, mz_0, ...). With the map values table, these columns are
+	 * removed from the element table and each sub-element is written as a row
+	 * of the map values table, see {@link #createMapValuesSpec()}, so the
+	 * width of the element table does not depend on the number of maps.
+	 * Sub-elements the consensus element does not have (nan) are skipped.
+	 * 
+	 * @param inputFile
+	 *            The file written by the TextExporter.
+	 * @param mapValuesTable
+	 *            Whether the per-map values are written to the map values
+	 *            table instead of the element table.
+	 * @param exec
+	 *            The execution context used to create the tables.
+	 * @return The tables, indexed by {@link #MAP_TABLE}, {@link #RUN_TABLE},
+	 *         {@link #PROTEIN_TABLE}, {@link #ELEMENT_TABLE},
+	 *         {@link #PEPTIDE_TABLE} and {@link #MAP_VALUES_TABLE}. The map
+	 *         values table is empty if it is not requested.
+	 * @throws Exception
+	 *             If the file cannot be read or a line cannot be parsed.
+	 */
+	public static BufferedDataTable[] parseRecords(final File inputFile,
+			final boolean mapValuesTable, final ExecutionContext exec)
+			throws Exception {
+		BufferedReader brReader = null;
+		try {
+			brReader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(inputFile)));
+
+			// collect the header lines
+			List<String> headerLines = new ArrayList<String>();
+			String line;
+			while ((line = brReader.readLine()) != null
+					&& line.startsWith("#")) {
+				headerLines.add(line);
+			}
+			RecordHeaders headers = new RecordHeaders(headerLines,
+					mapValuesTable);
+			String[] descriptionHeaders = headers.m_descriptionHeaders;
+			TextExporterParser elementParser = headers.m_elementParser;
+			DataTableSpec elementSpec = headers.m_elementSpec;
+			TextExporterParser peptideParser = headers.m_peptideParser;
+			DataTableSpec peptideSpec = headers.m_peptideSpec;
+			MapValueColumns mapValues = headers.m_mapValues;
+			String separator = headers.m_separator;
+
+			DataTableSpec[] specs = headers.createTableSpecs();
+			BufferedDataContainer[] containers = new BufferedDataContainer[specs.length];
+			for (int i = 0; i < specs.length; ++i) {
+				containers[i] = exec.createDataContainer(specs[i]);
+			}
+
+			// now parse the content
+			int[] rowIdx = new int[containers.length];
+			String lastElementLine = null;
+			DataCell elementId = DataType.getMissingCell();
+			for (; line != null; line = brReader.readLine()) {
+				if (peptideParser.m_peponlymode) {
+					containers[PEPTIDE_TABLE].addRowToTable(peptideParser
+							.parseLine(peptideSpec, null, "", line,
+									++rowIdx[PEPTIDE_TABLE]));
+				} else if (elementParser != null
+						&& line.startsWith(elementParser.m_elementOfInterest)) {
+					// we still have an unparsed last element line
+					if (lastElementLine != null) {
+						addElementRow(containers, rowIdx, elementParser,
+								elementSpec, mapValues, elementId,
+								lastElementLine, "");
+					}
+					lastElementLine = line;
+					elementId = new IntCell(++rowIdx[ELEMENT_TABLE]);
+				} else if (line.startsWith("PEPTIDE")) {
+					DataRow peptide = peptideParser.parseLine(peptideSpec,
+							null, "", line, ++rowIdx[PEPTIDE_TABLE]);
+					if (elementParser != null) {
+						peptide = prependCell(elementId, peptide);
+					}
+					containers[PEPTIDE_TABLE].addRowToTable(peptide);
+					if (lastElementLine != null) {
+						addElementRow(containers, rowIdx, elementParser,
+								elementSpec, mapValues, elementId,
+								lastElementLine, line);
+						lastElementLine = null;
+					}
+				} else {
+					for (int i = 0; i < DESCRIPTION_RECORDS.length; ++i) {
+						if (line.startsWith(DESCRIPTION_RECORDS[i])
+								&& descriptionHeaders[i] != null) {
+							containers[i].addRowToTable(parseDescriptionLine(
+									containers[i].getTableSpec(), separator,
+									line, ++rowIdx[i]));
+						}
+					}
+				}
+				exec.checkCanceled();
+			}
+			// ensure that there is no unfinished element line
+			if (lastElementLine != null) {
+				addElementRow(containers, rowIdx, elementParser, elementSpec,
+						mapValues, elementId, lastElementLine, "");
+			}
+
+			BufferedDataTable[] tables = new BufferedDataTable[containers.length];
+			for (int i = 0; i < containers.length; ++i) {
+				containers[i].close();
+				tables[i] = containers[i].getTable();
+			}
+			return tables;
+		} catch (Exception ex) {
+			logger.error(ex.getMessage());
+			throw ex;
+		} finally {
+			if (brReader != null)
+				brReader.close();
+		}
+	}
+
+	/**
+	 * Derives the specs of the tables of
+	 * {@link #parseRecords(File, boolean, ExecutionContext)} from the header
+	 * lines of a file.
+	 * 
+	 * @param headerLines
+	 *            The header lines, see {@link #readHeaderLines(File)}.
+	 * @param mapValuesTable
+	 *            Whether the per-map values are written to the map values
+	 *            table instead of the element table.
+	 * @return The specs, indexed like the tables.
+	 */
+	public static DataTableSpec[] createRecordSpecs(
+			final List<String> headerLines, final boolean mapValuesTable) {
+		return new RecordHeaders(headerLines, mapValuesTable)
+				.createTableSpecs();
+	}
+
+	/**
+	 * The parsers and specs of the records of a file, derived from its header
+	 * lines.
+	 */
+	private static final class RecordHeaders {
+
+		private final String[] m_descriptionHeaders = new String[DESCRIPTION_RECORDS.length];
+
+		/**
+		 * The parser of the CONSENSUS or FEATURE records, null if there are
+		 * none.
+		 */
+		private TextExporterParser m_elementParser;
+
+		private DataTableSpec m_elementSpec;
+
+		private final TextExporterParser m_peptideParser = new TextExporterParser(
+				"PEPTIDE");
+
+		private final DataTableSpec m_peptideSpec;
+
+		/**
+		 * The per-map columns if they are moved to the map values table, null
+		 * otherwise.
+		 */
+		private MapValueColumns m_mapValues;
+
+		private final String m_separator;
+
+		RecordHeaders(final List<String> headerLines,
+				final boolean mapValuesTable) {
+			String elementHeader = null;
+			String peptideHeader = null;
+			String lastheaderline = "";
+			for (String line : headerLines) {
+				for (int i = 0; i < DESCRIPTION_RECORDS.length; ++i) {
+					if (line.startsWith("#" + DESCRIPTION_RECORDS[i])) {
+						m_descriptionHeaders[i] = line;
+					}
+				}
+				for (String element : ELEMENT_RECORDS) {
+					if (line.startsWith("#" + element)
+							&& m_elementParser == null) {
+						m_elementParser = new TextExporterParser(element);
+						elementHeader = line;
+					}
+				}
+				if (line.startsWith("#PEPTIDE")) {
+					peptideHeader = line;
+				}
+				lastheaderline = line;
+			}
+
+			// as in parseFile, a file without any known header is read as
+			// a list of peptides described by the last header line
+			if (peptideHeader == null && m_elementParser == null
+					&& m_descriptionHeaders[MAP_TABLE] == null) {
+				m_peptideParser.m_peponlymode = true;
+				peptideHeader = lastheaderline;
+			}
+			m_peptideSpec = m_peptideParser
+					.parseDataTableSpec(peptideHeader != null ? peptideHeader
+							: "");
+			if (m_elementParser != null) {
+				m_elementSpec = m_elementParser
+						.parseDataTableSpec(elementHeader);
+				m_separator = m_elementParser.m_separator;
+				if (mapValuesTable) {
+					m_mapValues = new MapValueColumns(m_elementSpec);
+				}
+			} else {
+				m_elementSpec = new DataTableSpec();
+				m_separator = m_peptideParser.m_separator;
+			}
+		}
+
+		/**
+		 * @return The specs of the tables.
+		 */
+		DataTableSpec[] createTableSpecs() {
+			DataTableSpec[] specs = new DataTableSpec[MAP_VALUES_TABLE + 1];
+			for (int i = 0; i < DESCRIPTION_RECORDS.length; ++i) {
+				specs[i] = parseDescriptionSpec(m_descriptionHeaders[i],
+						m_separator);
+			}
+			if (m_elementParser != null) {
+				DataTableSpec idSpec = new DataTableSpec(
+						new DataColumnSpecCreator(ELEMENT_ID_COLUMN,
+								IntCell.TYPE).createSpec());
+				specs[ELEMENT_TABLE] = new DataTableSpec(idSpec,
+						m_mapValues != null ? m_mapValues
+								.createElementSpec(m_elementSpec)
+								: m_elementSpec);
+				specs[PEPTIDE_TABLE] = new DataTableSpec(idSpec, m_peptideSpec);
+			} else {
+				specs[ELEMENT_TABLE] = m_elementSpec;
+				specs[PEPTIDE_TABLE] = m_peptideSpec;
+			}
+			specs[MAP_VALUES_TABLE] = createMapValuesSpec();
+			return specs;
+		}
+	}
+
+	/**
+	 * Converts an element line with its first identification and adds it to
+	 * the element table of
+	 * {@link #parseRecords(File, boolean, ExecutionContext)}, and its
+	 * sub-elements to the map values table if requested.
+	 */
+	private static void addElementRow(
+			final BufferedDataContainer[] containers, final int[] rowIdx,
+			final TextExporterParser elementParser,
+			final DataTableSpec elementSpec, final MapValueColumns mapValues,
+			final DataCell elementId, final String elementLine,
+			final String peptideLine) throws Exception {
+		DataRow row = elementParser.parseLine(elementSpec, null, elementLine,
+				peptideLine, rowIdx[ELEMENT_TABLE]);
+		if (mapValues != null) {
+			row = mapValues.removeMapValues(row);
+			String[] values = elementLine.split(elementParser.m_separator, -1);
+			for (DataCell[] cells : mapValues.getMapValues(elementId, values)) {
+				containers[MAP_VALUES_TABLE].addRowToTable(new DefaultRow(
+						new RowKey("Row " + ++rowIdx[MAP_VALUES_TABLE]),
+						cells));
+			}
+		}
+		containers[ELEMENT_TABLE].addRowToTable(prependCell(elementId, row));
+	}
+
+	/**
+	 * @return The spec of the map values table of
+	 *         {@link #parseRecords(File, boolean, ExecutionContext)}: the
+	 *         {@link #ELEMENT_ID_COLUMN} of the consensus element, the index
+	 *         of the map and the rt, mz, intensity, charge and width of the
+	 *         sub-element.
+	 */
+	public static DataTableSpec createMapValuesSpec() {
+		DataColumnSpec[] specs = new DataColumnSpec[MapValueColumns.VALUES.length + 2];
+		specs[0] = new DataColumnSpecCreator(ELEMENT_ID_COLUMN, IntCell.TYPE)
+				.createSpec();
+		specs[1] = new DataColumnSpecCreator("map_idx", IntCell.TYPE)
+				.createSpec();
+		for (int i = 0; i < MapValueColumns.VALUES.length; ++i) {
+			specs[i + 2] = new DataColumnSpecCreator(MapValueColumns.VALUES[i],
+					MapValueColumns.CHARGE == i ? IntCell.TYPE
+							: DoubleCell.TYPE).createSpec();
+		}
+		return new DataTableSpec(specs);
+	}
+
+	/**
+	 * The per-map columns (rt_0, mz_0, ...) of a CONSENSUS header.
+	 */
+	private static final class MapValueColumns {
+
+		/**
+		 * The values of a sub-element in the order of the map values table.
+		 */
+		static final String[] VALUES = { "rt", "mz", "intensity", "charge",
+				"width" };
+
+		static final int CHARGE = 3;
+
+		private static final Pattern MAP_COLUMN = Pattern
+				.compile("^(rt|mz|intensity|charge|width)_(\\d+)$");
+
+		/**
+		 * The columns of the element spec that are not per-map columns.
+		 */
+		private final int[] m_keptColumns;
+
+		/**
+		 * The map indices in ascending order.
+		 */
+		private final int[] m_mapIndices;
+
+		/**
+		 * The element spec column of each map and value, -1 if the header has
+		 * no such column.
+		 */
+		private final int[][] m_mapColumns;
+
+		MapValueColumns(final DataTableSpec elementSpec) {
+			Map<Integer, int[]> maps = new TreeMap<Integer, int[]>();
+			List<Integer> kept = new ArrayList<Integer>();
+			for (int i = 0; i < elementSpec.getNumColumns(); ++i) {
+				Matcher m = MAP_COLUMN.matcher(elementSpec.getColumnSpec(i)
+						.getName());
+				if (!m.matches()) {
+					kept.add(i);
+					continue;
+				}
+				Integer mapIdx = Integer.valueOf(m.group(2));
+				int[] columns = maps.get(mapIdx);
+				if (columns == null) {
+					columns = new int[VALUES.length];
+					Arrays.fill(columns, -1);
+					maps.put(mapIdx, columns);
+				}
+				for (int v = 0; v < VALUES.length; ++v) {
+					if (VALUES[v].equals(m.group(1))) {
+						columns[v] = i;
+					}
+				}
+			}
+			m_keptColumns = new int[kept.size()];
+			for (int i = 0; i < m_keptColumns.length; ++i) {
+				m_keptColumns[i] = kept.get(i);
+			}
+			m_mapIndices = new int[maps.size()];
+			m_mapColumns = new int[maps.size()][];
+			int i = 0;
+			for (Map.Entry<Integer, int[]> entry : maps.entrySet()) {
+				m_mapIndices[i] = entry.getKey();
+				m_mapColumns[i++] = entry.getValue();
+			}
+		}
+
+		/**
+		 * @return The element spec without the per-map columns.
+		 */
+		DataTableSpec createElementSpec(final DataTableSpec elementSpec) {
+			DataColumnSpec[] specs = new DataColumnSpec[m_keptColumns.length];
+			for (int i = 0; i < specs.length; ++i) {
+				specs[i] = elementSpec.getColumnSpec(m_keptColumns[i]);
+			}
+			return new DataTableSpec(specs);
+		}
+
+		/**
+		 * @return The element row without the per-map cells.
+		 */
+		DataRow removeMapValues(final DataRow row) {
+			DataCell[] cells = new DataCell[m_keptColumns.length];
+			for (int i = 0; i < cells.length; ++i) {
+				cells[i] = row.getCell(m_keptColumns[i]);
+			}
+			return new DefaultRow(row.getKey(), cells);
+		}
+
+		/**
+		 * Converts the sub-elements of a CONSENSUS line. Column i of the
+		 * element spec is value i + 1 of the line.
+		 * 
+		 * @return The cells of the map values table, without sub-elements
+		 *         whose rt is nan or missing.
+		 */
+		List<DataCell[]> getMapValues(final DataCell elementId,
+				final String[] values) {
+			List<DataCell[]> rows = new ArrayList<DataCell[]>();
+			for (int m = 0; m < m_mapIndices.length; ++m) {
+				String rt = getValue(values, m_mapColumns[m][0]);
+				if (rt.length() == 0 || "nan".equals(rt)) {
+					continue;
+				}
+				DataCell[] cells = new DataCell[VALUES.length + 2];
+				cells[0] = elementId;
+				cells[1] = new IntCell(m_mapIndices[m]);
+				for (int v = 0; v < VALUES.length; ++v) {
+					String value = getValue(values, m_mapColumns[m][v]);
+					if (value.length() == 0 || "nan".equals(value)) {
+						cells[v + 2] = DataType.getMissingCell();
+					} else if (v == CHARGE) {
+						cells[v + 2] = new IntCell(NumberParser.parseInt(value));
+					} else {
+						cells[v + 2] = new DoubleCell(
+								NumberParser.parseDouble(value));
+					}
+				}
+				rows.add(cells);
+			}
+			return rows;
+		}
+
+		private static String getValue(final String[] values, final int column) {
+			return column >= 0 && column + 1 < values.length ? values[column + 1]
+					: "";
+		}
+	}
+
+	/**
+	 * Pairs each element line of the given block with the first PEPTIDE line
+	 * following it and converts them to rows. Further PEPTIDE lines of an
+	 * element are ignored. Since every element line starts a new element, a
+	 * block that starts at an element line is paired independently of the
+	 * lines before it.
+	 * 
+	 * @param spec
+	 *            The spec of the rows.
+	 * @param lines
+	 *            The element and PEPTIDE lines of the block.
+	 * @param rowIdx
+	 *            The row index of the first element line of the block.
+	 * @return One row per element line.
+	 * @throws Exception
+	 *             If a line cannot be parsed.
+	 */
+	List<DataRow> parseElementBlock(final DataTableSpec spec,
+			final List<String> lines, int rowIdx) throws Exception {
+		List<DataRow> rows = new ArrayList<DataRow>();
+		String lastConsensusLine = null;
+		for (String line : lines) {
+			if (line.startsWith(m_elementOfInterest)) {
+				// we still have an unparsed last consensus line
+				if (lastConsensusLine != null) {
+					rows.add(parseLine(spec, null, lastConsensusLine, "",
+							rowIdx++));
+				}
+				lastConsensusLine = line;
+			} else if (line.startsWith("PEPTIDE")) {
+				if (lastConsensusLine != null) {
+					rows.add(parseLine(spec, null, lastConsensusLine, line,
+							rowIdx++));
+
+					// clear last consensus for next round
+					lastConsensusLine = null;
+				} else {
+					logger.info("Found two identifications for last consensus element. Will ignore second. "
+							+ "The TextExporterReader node reads all identifications.");
+				}
+			}
+		}
+		// ensure that there is no unfinished consensus line
+		if (lastConsensusLine != null) {
+			rows.add(parseLine(spec, null, lastConsensusLine, "", rowIdx++));
+		}
+		return rows;
+	}
+
+	/**
+	 * @return A row with the given cell in front of the cells of the given
+	 *         row.
+	 */
+	private static DataRow prependCell(final DataCell cell, final DataRow row) {
+		DataCell[] cells = new DataCell[row.getNumCells() + 1];
+		cells[0] = cell;
+		for (int i = 1; i < cells.length; ++i) {
+			cells[i] = row.getCell(i - 1);
+		}
+		return new DefaultRow(row.getKey(), cells);
+	}
+
+	/**
+	 * Creates the spec of a MAP, RUN or PROTEIN table from its header line.
+	 * Identifiers, sizes and ranks are read as ints, scores and coverages as
+	 * doubles and all other columns as strings.
+	 * 
+	 * @param line
+	 *            The header line or null if the file has no such records.
+	 * @param separator
+	 *            The separator of the file.
+	 * @return The spec, without columns if there is no header line.
+	 */
+	private static DataTableSpec parseDescriptionSpec(final String line,
+			final String separator) {
+		if (line == null) {
+			return new DataTableSpec();
+		}
+		String[] colHeaders = line.split(separator);
+		DataColumnSpec[] specs = new DataColumnSpec[colHeaders.length - 1];
+		for (int i = 1; i < colHeaders.length; ++i) {
+			DataType type = StringCell.TYPE;
+			if ("id".equals(colHeaders[i]) || "size".equals(colHeaders[i])
+					|| "rank".equals(colHeaders[i])) {
+				type = IntCell.TYPE;
+			} else if ("score".equals(colHeaders[i])
+					|| "coverage".equals(colHeaders[i])) {
+				type = DoubleCell.TYPE;
+			}
+			specs[i - 1] = new DataColumnSpecCreator(colHeaders[i], type)
+					.createSpec();
+		}
+		return new DataTableSpec(specs);
+	}
+
+	/**
+	 * Converts a MAP, RUN or PROTEIN line into a row of the given spec.
+	 * Missing and nan values of numeric columns are missing cells.
+	 */
+	private static DataRow parseDescriptionLine(final DataTableSpec spec,
+			final String separator, final String line, final int rowIdx) {
+		String[] values = line.split(separator, -1);
+		DataCell[] cells = new DataCell[spec.getNumColumns()];
+		for (int i = 0; i < cells.length; ++i) {
+			String value = i + 1 < values.length ? values[i + 1] : "";
+			DataType type = spec.getColumnSpec(i).getType();
+			if (type == StringCell.TYPE) {
+				cells[i] = new StringCell(value);
+			} else if (value.length() == 0 || "nan".equals(value)) {
+				cells[i] = DataType.getMissingCell();
+			} else if (type == IntCell.TYPE) {
+				cells[i] = new IntCell(NumberParser.parseInt(value));
+			} else {
+				cells[i] = new DoubleCell(NumberParser.parseDouble(value));
+			}
+		}
+		return new DefaultRow(new RowKey("Row " + rowIdx), cells);
+	}
+
 	/**
 	 * Converts the given line from the textexporter file into a row in the
 	 * DataContainer.
@@ -260,9 +935,9 @@ public class TextExporterParser {
 						: "0");
 
 				if (spec.getColumnSpec(i).getType() == IntCell.TYPE) {
-					cells[i] = new IntCell(Integer.parseInt(pValue));
+					cells[i] = new IntCell(NumberParser.parseInt(pValue));
 				} else if (spec.getColumnSpec(i).getType() == DoubleCell.TYPE) {
-					cells[i] = new DoubleCell(Double.parseDouble(pValue));
+					cells[i] = new DoubleCell(NumberParser.parseDouble(pValue));
 				} else {
 					cells[i] = new StringCell(pValue);
 				}
@@ -280,9 +955,9 @@ public class TextExporterParser {
 					: "0");
 
 			if (spec.getColumnSpec(i - 1).getType() == IntCell.TYPE) {
-				cells[i - 1] = new IntCell(Integer.parseInt(pValue));
+				cells[i - 1] = new IntCell(NumberParser.parseInt(pValue));
 			} else {
-				cells[i - 1] = new DoubleCell(Double.parseDouble(pValue));
+				cells[i - 1] = new DoubleCell(NumberParser.parseDouble(pValue));
 			}
 		}
 
@@ -293,9 +968,9 @@ public class TextExporterParser {
 					: "0");
 
 			if (spec.getColumnSpec(cur_idx).getType() == IntCell.TYPE) {
-				cells[cur_idx] = new IntCell(Integer.parseInt(pValue));
+				cells[cur_idx] = new IntCell(NumberParser.parseInt(pValue));
 			} else if (spec.getColumnSpec(cur_idx).getType() == DoubleCell.TYPE) {
-				cells[cur_idx] = new DoubleCell(Double.parseDouble(pValue));
+				cells[cur_idx] = new DoubleCell(NumberParser.parseDouble(pValue));
 			} else {
 				cells[cur_idx] = new StringCell(pValue);
 			}
@@ -73,7 +73,7 @@ public class ConsensusTextReaderNodeFactory extends
 	 */
 	@Override
 	public boolean hasDialog() {
-		return false;
+		return true;
 	}
 
 	/**
@@ -81,7 +81,7 @@ public class ConsensusTextReaderNodeFactory extends
 	 */
 	@Override
 	public NodeDialogPane createNodeDialogPane() {
-		return null;
+		return new ConsensusTextReaderNodeDialog();
 	}
 
 }
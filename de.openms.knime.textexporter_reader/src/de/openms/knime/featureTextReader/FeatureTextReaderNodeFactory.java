@@ -43,7 +43,7 @@ public class FeatureTextReaderNodeFactory extends
 	 */
 	@Override
 	public boolean hasDialog() {
-		return false;
+		return true;
 	}
 
 	/**
@@ -51,7 +51,7 @@ public class FeatureTextReaderNodeFactory extends
 	 */
 	@Override
 	public NodeDialogPane createNodeDialogPane() {
-		return null;
+		return new FeatureTextReaderNodeDialog();
 	}
 
 }
@@ -3,6 +3,7 @@ package de.openms.knime.featureTextReader;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 
 import org.knime.core.data.DataTableSpec;
@@ -17,11 +18,14 @@ import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
 
+import de.openms.knime.TextExporterHeaderCache;
 import de.openms.knime.TextExporterParser;
+import de.openms.knime.parsing.ReaderResultCache;
 
 /**
  * This is the model implementation of FeatureTextReader. Reads files exported
@@ -35,6 +39,35 @@ public class FeatureTextReaderNodeModel extends NodeModel {
     private static final NodeLogger logger = NodeLogger
             .getLogger(FeatureTextReaderNodeModel.class);
 
+    /**
+     * Copy of the output of the last execution.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
+    /**
+     * Header lines of the last read file, used to derive the spec in
+     * configure.
+     */
+    private final TextExporterHeaderCache m_headerCache = new TextExporterHeaderCache();
+
+    /**
+     * Config key for the number of threads used to convert the features.
+     */
+    static final String CFG_PARSER_THREADS = "parser_threads";
+
+    /**
+     * Creates the settings model holding the number of threads used to convert
+     * the features. A single thread parses the file sequentially.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelIntegerBounded createParserThreadsModel() {
+        return new SettingsModelIntegerBounded(CFG_PARSER_THREADS, 1, 1,
+                Integer.MAX_VALUE);
+    }
+
+    private final SettingsModelIntegerBounded m_parserThreads = createParserThreadsModel();
+
     /**
      * Constructor for the node model.
      */
@@ -63,11 +96,27 @@ public class FeatureTextReaderNodeModel extends NodeModel {
 
         URI relURI = uris.get(0).getURI();
         File cXMLFile = new File(relURI);
+        m_headerCache.setFile(cXMLFile);
+
+        String cacheKey = null;
+        if (m_resultCache.isEnabled()) {
+            cacheKey = ReaderResultCache.createKey(getClass().getName(),
+                    Collections.singletonList(cXMLFile));
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
         TextExporterParser parser = new TextExporterParser("FEATURE");
+        parser.setNumberOfThreads(m_parserThreads.getIntValue());
         BufferedDataTable out = parser.parseFile(cXMLFile, exec);
 
-        return new BufferedDataTable[] { out };
+        BufferedDataTable[] result = new BufferedDataTable[] { out };
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, result, exec);
+        }
+        return result;
     }
 
     /**
@@ -83,7 +132,19 @@ public class FeatureTextReaderNodeModel extends NodeModel {
     @Override
     protected DataTableSpec[] configure(final PortObjectSpec[] inSpecs)
             throws InvalidSettingsException {
-        return new DataTableSpec[] { null };
+        // derive the spec from the headers of the last read file
+        DataTableSpec spec = null;
+        try {
+            List<String> headerLines = m_headerCache.getHeaderLines();
+            if (headerLines != null) {
+                spec = new TextExporterParser("FEATURE")
+                        .parseHeaderLines(headerLines);
+            }
+        } catch (Exception e) {
+            logger.debug("Could not derive the table spec from the headers of "
+                    + m_headerCache.getFile() + ": " + e.getMessage());
+        }
+        return new DataTableSpec[] { spec };
     }
 
     /**
@@ -91,6 +152,8 @@ public class FeatureTextReaderNodeModel extends NodeModel {
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
+        m_parserThreads.saveSettingsTo(settings);
     }
 
     /**
@@ -99,6 +162,11 @@ public class FeatureTextReaderNodeModel extends NodeModel {
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
+        // workflows created before the setting existed keep the default
+        if (settings.containsKey(CFG_PARSER_THREADS)) {
+            m_parserThreads.loadSettingsFrom(settings);
+        }
     }
 
     /**
@@ -107,6 +175,18 @@ public class FeatureTextReaderNodeModel extends NodeModel {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+        if (settings.containsKey(CFG_PARSER_THREADS)) {
+            m_parserThreads.validateSettings(settings);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
     }
 
     /**
@@ -116,6 +196,8 @@ public class FeatureTextReaderNodeModel extends NodeModel {
     protected void loadInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
+        m_headerCache.loadInternals(internDir);
     }
 
     /**
@@ -125,6 +207,8 @@ public class FeatureTextReaderNodeModel extends NodeModel {
     protected void saveInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.saveInternals(internDir);
+        m_headerCache.saveInternals(internDir);
     }
 
 }
@@ -33,6 +33,7 @@ package de.openms.knime.idTextReader;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 
 import org.knime.core.data.DataTableSpec;
@@ -51,7 +52,9 @@ import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
 
+import de.openms.knime.TextExporterHeaderCache;
 import de.openms.knime.TextExporterParser;
+import de.openms.knime.parsing.ReaderResultCache;
 
 /**
  * This is the model implementation of IDTextReader.
@@ -65,6 +68,17 @@ public class IDTextReaderNodeModel extends NodeModel {
     private static final NodeLogger logger = NodeLogger
             .getLogger(IDTextReaderNodeModel.class);
 
+    /**
+     * Copy of the output of the last execution.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
+    /**
+     * Header lines of the last read file, used to derive the spec in
+     * configure.
+     */
+    private final TextExporterHeaderCache m_headerCache = new TextExporterHeaderCache();
+
     /**
      * Constructor for the node model.
      */
@@ -93,11 +107,26 @@ public class IDTextReaderNodeModel extends NodeModel {
 
         URI relURI = uris.get(0).getURI();
         File cXMLFile = new File(relURI);
+        m_headerCache.setFile(cXMLFile);
+
+        String cacheKey = null;
+        if (m_resultCache.isEnabled()) {
+            cacheKey = ReaderResultCache.createKey(getClass().getName(),
+                    Collections.singletonList(cXMLFile));
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
         TextExporterParser parser = new TextExporterParser("PEPTIDE");
         BufferedDataTable out = parser.parseFile(cXMLFile, exec);
 
-        return new BufferedDataTable[] { out };
+        BufferedDataTable[] result = new BufferedDataTable[] { out };
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, result, exec);
+        }
+        return result;
     }
 
     /**
@@ -113,7 +142,19 @@ public class IDTextReaderNodeModel extends NodeModel {
     @Override
     protected DataTableSpec[] configure(final PortObjectSpec[] inSpecs)
             throws InvalidSettingsException {
-        return new DataTableSpec[] { null };
+        // derive the spec from the headers of the last read file
+        DataTableSpec spec = null;
+        try {
+            List<String> headerLines = m_headerCache.getHeaderLines();
+            if (headerLines != null) {
+                spec = new TextExporterParser("PEPTIDE")
+                        .parseHeaderLines(headerLines);
+            }
+        } catch (Exception e) {
+            logger.debug("Could not derive the table spec from the headers of "
+                    + m_headerCache.getFile() + ": " + e.getMessage());
+        }
+        return new DataTableSpec[] { spec };
     }
 
     /**
@@ -121,6 +162,7 @@ public class IDTextReaderNodeModel extends NodeModel {
      */
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
     }
 
     /**
@@ -129,6 +171,7 @@ public class IDTextReaderNodeModel extends NodeModel {
     @Override
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
     }
 
     /**
@@ -137,6 +180,15 @@ public class IDTextReaderNodeModel extends NodeModel {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
     }
 
     /**
@@ -146,6 +198,8 @@ public class IDTextReaderNodeModel extends NodeModel {
     protected void loadInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
+        m_headerCache.loadInternals(internDir);
     }
 
     /**
@@ -155,5 +209,7 @@ public class IDTextReaderNodeModel extends NodeModel {
     protected void saveInternals(final File internDir,
             final ExecutionMonitor exec) throws IOException,
             CanceledExecutionException {
+        m_resultCache.saveInternals(internDir);
+        m_headerCache.saveInternals(internDir);
     }
 }
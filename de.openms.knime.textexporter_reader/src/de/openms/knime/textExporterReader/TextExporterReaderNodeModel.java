@@ -0,0 +1,252 @@
+/**
+ * --------------------------------------------------------------------------
+ *                   OpenMS -- Open-Source Mass Spectrometry
+ * --------------------------------------------------------------------------
+ * Copyright The OpenMS Team -- Eberhard Karls University Tuebingen,
+ * ETH Zurich, and Freie Universitaet Berlin 2002-2013.
+ * 
+ * This software is released under a three-clause BSD license:
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of any author or any participating institution
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * For a full list of authors, refer to the file AUTHORS.
+ * --------------------------------------------------------------------------
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ANY OF THE AUTHORS OR THE CONTRIBUTING
+ * INSTITUTIONS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.openms.knime.textExporterReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.uri.IURIPortObject;
+import org.knime.core.data.uri.URIContent;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettings;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+
+import de.openms.knime.TextExporterHeaderCache;
+import de.openms.knime.TextExporterParser;
+import de.openms.knime.parsing.ReaderResultCache;
+
+/**
+ * This is the model implementation of TextExporterReader. It reads the MAP,
+ * RUN, PROTEIN, CONSENSUS or FEATURE and PEPTIDE records of a file written by
+ * the TextExporter in a single pass, see
+ * {@link TextExporterParser#parseRecords(java.io.File, boolean, ExecutionContext)}.
+ * 
+ * @author The OpenMS Team
+ */
+public class TextExporterReaderNodeModel extends NodeModel {
+
+    // the logger instance
+    private static final NodeLogger logger = NodeLogger
+            .getLogger(TextExporterReaderNodeModel.class);
+
+    /**
+     * Copy of the output of the last execution.
+     */
+    private final ReaderResultCache m_resultCache = new ReaderResultCache();
+
+    /**
+     * Header lines of the last read file, used to derive the specs in
+     * configure.
+     */
+    private final TextExporterHeaderCache m_headerCache = new TextExporterHeaderCache();
+
+    /**
+     * Config key for writing the per-map values of consensus elements to a
+     * separate table.
+     */
+    static final String CFG_MAP_VALUES_TABLE = "map_values_table";
+
+    /**
+     * Creates the settings model that moves the per-map columns of consensus
+     * elements (rt_0, mz_0, ...) to the map values table.
+     * 
+     * @return The settings model.
+     */
+    static SettingsModelBoolean createMapValuesTableModel() {
+        return new SettingsModelBoolean(CFG_MAP_VALUES_TABLE, false);
+    }
+
+    private final SettingsModelBoolean m_mapValuesTable = createMapValuesTableModel();
+
+    /**
+     * Constructor for the node model.
+     */
+    protected TextExporterReaderNodeModel() {
+        super(new PortType[] { new PortType(IURIPortObject.class) },
+                new PortType[] { new PortType(BufferedDataTable.class),
+                        new PortType(BufferedDataTable.class),
+                        new PortType(BufferedDataTable.class),
+                        new PortType(BufferedDataTable.class),
+                        new PortType(BufferedDataTable.class),
+                        new PortType(BufferedDataTable.class) });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BufferedDataTable[] execute(final PortObject[] inObjects,
+            final ExecutionContext exec) throws Exception {
+
+        IURIPortObject obj = (IURIPortObject) inObjects[0];
+        List<URIContent> uris = obj.getURIContents();
+        if (uris.size() == 0) {
+            throw new Exception(
+                    "No URI was supplied in URIPortObject at input port 0");
+        } else if (uris.size() != 1) {
+            throw new Exception(String.format(
+                    "We can only demangle a single file but got %d.",
+                    uris.size()));
+        }
+
+        URI relURI = uris.get(0).getURI();
+        File textFile = new File(relURI);
+        m_headerCache.setFile(textFile);
+
+        String cacheKey = null;
+        if (m_resultCache.isEnabled()) {
+            NodeSettings settings = new NodeSettings("settings");
+            saveSettingsTo(settings);
+            cacheKey = ReaderResultCache.createKey(getClass().getName()
+                    + "\n" + settings, Collections.singletonList(textFile));
+            BufferedDataTable[] cached = m_resultCache.get(cacheKey, exec);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        BufferedDataTable[] result = TextExporterParser.parseRecords(
+                textFile, m_mapValuesTable.getBooleanValue(), exec);
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, result, exec);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void reset() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataTableSpec[] configure(final PortObjectSpec[] inSpecs)
+            throws InvalidSettingsException {
+        // derive the specs from the headers of the last read file
+        try {
+            List<String> headerLines = m_headerCache.getHeaderLines();
+            if (headerLines != null) {
+                return TextExporterParser.createRecordSpecs(headerLines,
+                        m_mapValuesTable.getBooleanValue());
+            }
+        } catch (IOException e) {
+            logger.debug("Could not derive the table specs from the headers of "
+                    + m_headerCache.getFile() + ": " + e.getMessage());
+        }
+        DataTableSpec[] specs = new DataTableSpec[getNrOutPorts()];
+        specs[TextExporterParser.MAP_VALUES_TABLE] = TextExporterParser
+                .createMapValuesSpec();
+        return specs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_resultCache.saveSettingsTo(settings);
+        m_mapValuesTable.saveSettingsTo(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_resultCache.loadSettingsFrom(settings);
+        // workflows created before the setting existed keep the default
+        if (settings.containsKey(CFG_MAP_VALUES_TABLE)) {
+            m_mapValuesTable.loadSettingsFrom(settings);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validateSettings(final NodeSettingsRO settings)
+            throws InvalidSettingsException {
+        m_resultCache.validateSettings(settings);
+        if (settings.containsKey(CFG_MAP_VALUES_TABLE)) {
+            m_mapValuesTable.validateSettings(settings);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDispose() {
+        m_resultCache.dispose();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadInternals(final File internDir,
+            final ExecutionMonitor exec) throws IOException,
+            CanceledExecutionException {
+        m_resultCache.loadInternals(internDir);
+        m_headerCache.loadInternals(internDir);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveInternals(final File internDir,
+            final ExecutionMonitor exec) throws IOException,
+            CanceledExecutionException {
+        m_resultCache.saveInternals(internDir);
+        m_headerCache.saveInternals(internDir);
+    }
+}